@@ -0,0 +1,153 @@
+package br.com.simbasoft.renderer;
+
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+// Loaded assets keyed by path and type, with reference counts and a memory budget.
+// Assets nobody references any more stay cached until the budget is exceeded, and are then evicted least recently used first.
+// Assets can grow after loading, like textures building their tiled levels, so loaded assets are measured again before evicting.
+public class AssetCache {
+    public static final long DEFAULT_BUDGET_BYTES = 256L * 1024 * 1024;
+
+    private static final AssetCache SHARED = new AssetCache(DEFAULT_BUDGET_BYTES);
+
+    private final LinkedHashMap<Key, Entry> entries;
+    private long budgetBytes;
+    private long sizeInBytes;
+
+    public AssetCache(long budgetBytes) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.budgetBytes = budgetBytes;
+        this.sizeInBytes = 0;
+    }
+
+    public static AssetCache getShared() {
+        return SHARED;
+    }
+
+    // Every acquire has to be paired with a release once the caller no longer uses the asset
+    @SuppressWarnings("unchecked")
+    public synchronized <T> CompletableFuture<T> acquire(Path path, Class<T> type, Supplier<CompletableFuture<T>> loader, ToLongFunction<T> sizeOf) {
+        Key key = new Key(path, type);
+        Entry entry = entries.get(key);
+
+        if (entry != null) {
+            entry.referenceCount++;
+
+            return (CompletableFuture<T>) entry.future;
+        }
+
+        Entry newEntry = new Entry(loader.get());
+        newEntry.referenceCount = 1;
+        entries.put(key, newEntry);
+
+        // Registered after the reference is counted, since an already completed future runs this immediately
+        newEntry.future.whenComplete((asset, error) -> onLoaded(key, newEntry, error == null ? () -> sizeOf.applyAsLong((T) asset) : null, error));
+
+        return (CompletableFuture<T>) newEntry.future;
+    }
+
+    public synchronized void release(Path path, Class<?> type) {
+        Entry entry = entries.get(new Key(path, type));
+
+        if (entry == null || entry.referenceCount == 0) {
+            throw new IllegalStateException("Error releasing " + path + ": asset is not referenced");
+        }
+
+        entry.referenceCount--;
+
+        if (entry.isFailed && entry.referenceCount == 0) {
+            entries.remove(new Key(path, type));
+        }
+
+        evictUnreferenced();
+    }
+
+    public synchronized long getSizeInBytes() {
+        measureLoaded();
+
+        return sizeInBytes;
+    }
+
+    public synchronized long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    public synchronized void setBudgetBytes(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+
+        evictUnreferenced();
+    }
+
+    private synchronized void onLoaded(Key key, Entry entry, LongSupplier sizeOf, Throwable error) {
+        if (entries.get(key) != entry) {
+            return;
+        }
+
+        // A failed load is kept until its last reference is released, and the next acquire after that tries again
+        if (error != null) {
+            entry.isFailed = true;
+
+            if (entry.referenceCount == 0) {
+                entries.remove(key);
+            }
+
+            return;
+        }
+
+        entry.sizeOf = sizeOf;
+        entry.sizeInBytes = sizeOf.getAsLong();
+        entry.isLoaded = true;
+        sizeInBytes += entry.sizeInBytes;
+
+        evictUnreferenced();
+    }
+
+    private void measureLoaded() {
+        for (Entry entry : entries.values()) {
+            if (entry.isLoaded) {
+                long assetSizeInBytes = entry.sizeOf.getAsLong();
+
+                sizeInBytes += assetSizeInBytes - entry.sizeInBytes;
+                entry.sizeInBytes = assetSizeInBytes;
+            }
+        }
+    }
+
+    private void evictUnreferenced() {
+        measureLoaded();
+
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+
+        while (sizeInBytes > budgetBytes && iterator.hasNext()) {
+            Entry entry = iterator.next().getValue();
+
+            if (entry.referenceCount == 0 && entry.isLoaded) {
+                iterator.remove();
+                sizeInBytes -= entry.sizeInBytes;
+            }
+        }
+    }
+
+    private record Key(Path path, Class<?> type) {
+    }
+
+    private static class Entry {
+        private final CompletableFuture<?> future;
+        private int referenceCount;
+        private LongSupplier sizeOf;
+        private long sizeInBytes;
+        private boolean isLoaded;
+        private boolean isFailed;
+
+        private Entry(CompletableFuture<?> future) {
+            this.future = future;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package br.com.simbasoft.renderer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Loads mesh geometry and textures concurrently on a bounded pool.
+// Loads go through an AssetCache, so a file that is already loaded or loading is not read again.
+// Every load takes a reference on the cached asset, which the matching release gives back.
+public class AssetLoader {
+    private final ExecutorService executor;
+    private final AssetCache cache;
+
+    public AssetLoader() {
+        this(Runtime.getRuntime().availableProcessors(), AssetCache.getShared());
+    }
+
+    public AssetLoader(int threadCount, AssetCache cache) {
+        AtomicInteger threadNumber = new AtomicInteger();
+
+        this.executor = Executors.newFixedThreadPool(threadCount, runnable -> {
+            Thread thread = new Thread(runnable, "asset-loader-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.cache = cache;
+    }
+
+    public CompletableFuture<MeshGeometry> loadGeometry(String objFileName) {
+        return cache.acquire(getKey(objFileName), MeshGeometry.class, () -> CompletableFuture.supplyAsync(() -> {
+            try {
+                return Mesh.loadMeshGeometry(objFileName);
+            } catch (IOException e) {
+                throw new RuntimeException("Error loading mesh " + objFileName, e);
+            }
+        }, executor), MeshGeometry::getSizeInBytes);
+    }
+
+    public CompletableFuture<ImageTexture> loadTexture(String pngFileName) {
+        return cache.acquire(getKey(pngFileName), ImageTexture.class, () -> CompletableFuture.supplyAsync(() -> {
+            try {
+                return new ImageTexture(pngFileName);
+            } catch (IOException e) {
+                throw new RuntimeException("Error loading texture " + pngFileName, e);
+            }
+        }, executor), ImageTexture::getSizeInBytes);
+    }
+
+    // The geometry and the texture are loaded in parallel, and the mesh is created once both are ready
+    public CompletableFuture<Mesh> loadMesh(String objFileName, String pngFileName) {
+        return loadGeometry(objFileName).thenCombine(loadTexture(pngFileName), Mesh::new);
+    }
+
+    public void releaseGeometry(String objFileName) {
+        cache.release(getKey(objFileName), MeshGeometry.class);
+    }
+
+    public void releaseTexture(String pngFileName) {
+        cache.release(getKey(pngFileName), ImageTexture.class);
+    }
+
+    public void releaseMesh(String objFileName, String pngFileName) {
+        releaseGeometry(objFileName);
+        releaseTexture(pngFileName);
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static Path getKey(String fileName) {
+        return Path.of(fileName).toAbsolutePath().normalize();
+    }
+}
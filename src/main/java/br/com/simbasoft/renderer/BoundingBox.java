@@ -0,0 +1,18 @@
+package br.com.simbasoft.renderer;
+
+public record BoundingBox(Vector3 min, Vector3 max) {
+    public Vector3 getCenter() {
+        return new Vector3((min.x() + max.x()) / 2, (min.y() + max.y()) / 2, (min.z() + max.z()) / 2);
+    }
+
+    // Writes the eight transformed corners as x, y, z triples
+    public void transformCornersInto(Matrix4 matrix, double[] destination) {
+        for (int i = 0; i < 8; i++) {
+            double x = (i & 1) == 0 ? min.x() : max.x();
+            double y = (i & 2) == 0 ? min.y() : max.y();
+            double z = (i & 4) == 0 ? min.z() : max.z();
+
+            matrix.transformPoint(x, y, z, destination, i * 3);
+        }
+    }
+}
@@ -0,0 +1,4 @@
+package br.com.simbasoft.renderer;
+
+public record BoundingSphere(Vector3 center, double radius) {
+}
@@ -0,0 +1,253 @@
+package br.com.simbasoft.renderer;
+
+import java.util.Arrays;
+
+// Binary tree of axis-aligned boxes over items given as min x, y, z and max x, y, z.
+// Nodes are stored depth first, so the left child of a node is the next node, and the items below any node
+// form one contiguous run of getItemOrder().
+public class BoundingVolumeHierarchy {
+    private final int maxItemsPerLeaf;
+    private final int[] itemOrder;
+    private final int[] itemLeaves;
+    private double[] nodeBounds;
+    private int[] nodeRightChildren;
+    private int[] nodeParents;
+    private int[] nodeFirstItems;
+    private int[] nodeItemCounts;
+    private int nodeCount;
+
+    public interface NodeVisitor {
+        EFrustumContainment classifyNode(int node);
+
+        // Called for every node that is not descended into, in item order
+        void acceptItems(int firstItem, int itemCount, EFrustumContainment containment);
+    }
+
+    public BoundingVolumeHierarchy(double[] itemBounds, int itemCount, int maxItemsPerLeaf) {
+        this.maxItemsPerLeaf = Math.max(maxItemsPerLeaf, 1);
+        this.itemOrder = new int[itemCount];
+        this.itemLeaves = new int[itemCount];
+
+        int nodeCapacity = Math.max(2 * itemCount / this.maxItemsPerLeaf + 1, 1) * 2;
+
+        this.nodeBounds = new double[nodeCapacity * 6];
+        this.nodeRightChildren = new int[nodeCapacity];
+        this.nodeParents = new int[nodeCapacity];
+        this.nodeFirstItems = new int[nodeCapacity];
+        this.nodeItemCounts = new int[nodeCapacity];
+
+        for (int i = 0; i < itemCount; i++) {
+            itemOrder[i] = i;
+        }
+
+        double[] centroids = new double[itemCount * 3];
+
+        for (int i = 0; i < itemCount; i++) {
+            for (int axis = 0; axis < 3; axis++) {
+                centroids[i * 3 + axis] = (itemBounds[i * 6 + axis] + itemBounds[i * 6 + 3 + axis]) / 2;
+            }
+        }
+
+        if (itemCount > 0) {
+            build(itemBounds, centroids, -1, 0, itemCount);
+        }
+    }
+
+    // Splits at the median centroid along the longest axis of the node's box
+    private int build(double[] itemBounds, double[] centroids, int parent, int firstItem, int itemCount) {
+        int node = addNode(parent, firstItem, itemCount);
+
+        computeNodeBounds(node, itemBounds);
+
+        if (itemCount <= maxItemsPerLeaf) {
+            for (int i = firstItem; i < firstItem + itemCount; i++) {
+                itemLeaves[itemOrder[i]] = node;
+            }
+
+            return node;
+        }
+
+        int axis = 0;
+        double longestExtent = -1;
+
+        for (int i = 0; i < 3; i++) {
+            double extent = nodeBounds[node * 6 + 3 + i] - nodeBounds[node * 6 + i];
+
+            if (extent > longestExtent) {
+                longestExtent = extent;
+                axis = i;
+            }
+        }
+
+        int leftCount = itemCount / 2;
+
+        selectByCentroid(centroids, axis, firstItem, firstItem + itemCount - 1, firstItem + leftCount);
+
+        build(itemBounds, centroids, node, firstItem, leftCount);
+        nodeRightChildren[node] = build(itemBounds, centroids, node, firstItem + leftCount, itemCount - leftCount);
+
+        return node;
+    }
+
+    private int addNode(int parent, int firstItem, int itemCount) {
+        if (nodeCount == nodeParents.length) {
+            nodeBounds = Arrays.copyOf(nodeBounds, nodeBounds.length * 2);
+            nodeRightChildren = Arrays.copyOf(nodeRightChildren, nodeRightChildren.length * 2);
+            nodeParents = Arrays.copyOf(nodeParents, nodeParents.length * 2);
+            nodeFirstItems = Arrays.copyOf(nodeFirstItems, nodeFirstItems.length * 2);
+            nodeItemCounts = Arrays.copyOf(nodeItemCounts, nodeItemCounts.length * 2);
+        }
+
+        nodeRightChildren[nodeCount] = -1;
+        nodeParents[nodeCount] = parent;
+        nodeFirstItems[nodeCount] = firstItem;
+        nodeItemCounts[nodeCount] = itemCount;
+
+        return nodeCount++;
+    }
+
+    // Quickselect on itemOrder, so that the item with the k-th smallest centroid ends up at position k
+    private void selectByCentroid(double[] centroids, int axis, int left, int right, int k) {
+        while (left < right) {
+            double pivot = centroids[itemOrder[(left + right) >>> 1] * 3 + axis];
+            int i = left;
+            int j = right;
+
+            while (i <= j) {
+                while (centroids[itemOrder[i] * 3 + axis] < pivot) {
+                    i++;
+                }
+
+                while (centroids[itemOrder[j] * 3 + axis] > pivot) {
+                    j--;
+                }
+
+                if (i <= j) {
+                    int swap = itemOrder[i];
+                    itemOrder[i] = itemOrder[j];
+                    itemOrder[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void computeNodeBounds(int node, double[] itemBounds) {
+        int offset = node * 6;
+
+        for (int axis = 0; axis < 3; axis++) {
+            nodeBounds[offset + axis] = Double.POSITIVE_INFINITY;
+            nodeBounds[offset + 3 + axis] = Double.NEGATIVE_INFINITY;
+        }
+
+        for (int i = nodeFirstItems[node]; i < nodeFirstItems[node] + nodeItemCounts[node]; i++) {
+            int item = itemOrder[i];
+
+            for (int axis = 0; axis < 3; axis++) {
+                nodeBounds[offset + axis] = Math.min(nodeBounds[offset + axis], itemBounds[item * 6 + axis]);
+                nodeBounds[offset + 3 + axis] = Math.max(nodeBounds[offset + 3 + axis], itemBounds[item * 6 + 3 + axis]);
+            }
+        }
+    }
+
+    // Recomputes the boxes from the changed item's leaf up to the root, stopping early once a box no longer changes
+    public void refitItem(int item, double[] itemBounds) {
+        int node = itemLeaves[item];
+
+        computeNodeBounds(node, itemBounds);
+
+        for (int parent = nodeParents[node]; parent >= 0; parent = nodeParents[parent]) {
+            int left = parent + 1;
+            int right = nodeRightChildren[parent];
+            boolean isChanged = false;
+
+            for (int axis = 0; axis < 3; axis++) {
+                double min = Math.min(nodeBounds[left * 6 + axis], nodeBounds[right * 6 + axis]);
+                double max = Math.max(nodeBounds[left * 6 + 3 + axis], nodeBounds[right * 6 + 3 + axis]);
+
+                isChanged |= min != nodeBounds[parent * 6 + axis] || max != nodeBounds[parent * 6 + 3 + axis];
+
+                nodeBounds[parent * 6 + axis] = min;
+                nodeBounds[parent * 6 + 3 + axis] = max;
+            }
+
+            if (!isChanged) {
+                return;
+            }
+        }
+    }
+
+    public void traverse(NodeVisitor visitor) {
+        if (nodeCount == 0) {
+            return;
+        }
+
+        int[] stack = new int[64];
+        int stackSize = 0;
+
+        stack[stackSize++] = 0;
+
+        while (stackSize > 0) {
+            int node = stack[--stackSize];
+            EFrustumContainment containment = visitor.classifyNode(node);
+
+            if (containment != EFrustumContainment.INTERSECTS_FRUSTUM || isLeaf(node)) {
+                visitor.acceptItems(nodeFirstItems[node], nodeItemCounts[node], containment);
+                continue;
+            }
+
+            if (stackSize + 2 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+
+            // The left child is pushed last so it is visited first, keeping the reported runs in item order
+            stack[stackSize++] = nodeRightChildren[node];
+            stack[stackSize++] = node + 1;
+        }
+    }
+
+    public void transformNodeCornersInto(int node, Matrix4 matrix, double[] destination) {
+        int offset = node * 6;
+
+        for (int i = 0; i < 8; i++) {
+            double x = nodeBounds[offset + ((i & 1) == 0 ? 0 : 3)];
+            double y = nodeBounds[offset + ((i & 2) == 0 ? 1 : 4)];
+            double z = nodeBounds[offset + ((i & 4) == 0 ? 2 : 5)];
+
+            matrix.transformPoint(x, y, z, destination, i * 3);
+        }
+    }
+
+    public boolean isLeaf(int node) {
+        return nodeRightChildren[node] < 0;
+    }
+
+    public int getRightChild(int node) {
+        return nodeRightChildren[node];
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getFirstItem(int node) {
+        return nodeFirstItems[node];
+    }
+
+    public int getItemCount(int node) {
+        return nodeItemCounts[node];
+    }
+
+    public int[] getItemOrder() {
+        return itemOrder;
+    }
+}
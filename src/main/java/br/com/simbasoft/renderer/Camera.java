@@ -6,6 +6,7 @@ public class Camera {
     private Vector3 forwardVelocity;
     private double yaw;
     private double pitch;
+    private Matrix4 viewMatrix;
 
     public Camera(Vector3 position, Vector3 direction) {
         this.position = position;
@@ -33,8 +34,22 @@ public class Camera {
         return target;
     }
 
+    // Cached until the camera moves or rotates
+    public Matrix4 getViewMatrix() {
+        if (viewMatrix == null) {
+            Vector3 target = getLookAtTarget();
+
+            Vector3 upDirection = new Vector3(0, 1, 0);
+
+            viewMatrix = Matrix4.lookAt(position, target, upDirection);
+        }
+
+        return viewMatrix;
+    }
+
     public void updateCameraPosition(Vector3 position) {
         this.position = position;
+        this.viewMatrix = null;
     }
 
     public void updateCameraForwardVelocity(Vector3 forwardVelocity) {
@@ -43,10 +58,12 @@ public class Camera {
 
     public void rotateCameraYaw(double angle) {
         this.yaw += angle;
+        this.viewMatrix = null;
     }
 
     public void rotateCameraPitch(double angle) {
         this.pitch += angle;
+        this.viewMatrix = null;
     }
 
     public Vector3 getPosition() {
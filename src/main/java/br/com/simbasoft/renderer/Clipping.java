@@ -1,19 +1,56 @@
 package br.com.simbasoft.renderer;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
 public class Clipping {
-    private Map<EFrustumPlane, Plane> frustumPlanes;
+    // The side planes of the guard band are this many times farther from the view axis than the frustum's
+    public static final double GUARD_BAND_SCALE = 4;
+
+    public static final int NEAR_PLANE_BIT = 1 << EFrustumPlane.NEAR_FRUSTUM_PLANE.ordinal();
+    public static final int FAR_PLANE_BIT = 1 << EFrustumPlane.FAR_FRUSTUM_PLANE.ordinal();
+
+    private static final int PLANE_COUNT = EFrustumPlane.values().length;
+    private static final int GUARD_BAND_PLANE_COUNT = 4;
+
+    // In homogeneous clip space the frustum is -w <= x <= w, -w <= y <= w and 0 <= z <= w, whatever the field of view
+    private static final double[] CLIP_SPACE_PLANES = {
+            1, 0, 0, 1,
+            -1, 0, 0, 1,
+            0, -1, 0, 1,
+            0, 1, 0, 1,
+            0, 0, 1, 0,
+            0, 0, -1, 1
+    };
+
+    private static final double[] CLIP_SPACE_GUARD_BAND_PLANES = {
+            1, 0, 0, GUARD_BAND_SCALE,
+            -1, 0, 0, GUARD_BAND_SCALE,
+            0, -1, 0, GUARD_BAND_SCALE,
+            0, 1, 0, GUARD_BAND_SCALE
+    };
+
+    // Planes are stored as a, b, c, d with a * x + b * y + c * z + d * w > 0 on the inside, camera-space points having w = 1.
+    // They are indexed by EFrustumPlane ordinal, which is also the order polygons are clipped in.
+    private double[] frustumPlanes;
+    private double[] guardBandPlanes;
 
     public Clipping(double fovX, double fovY, double zNear, double zFar) {
         this.initFrustumPlanes(fovX, fovY, zNear, zFar);
+        this.initGuardBandPlanes(fovX, fovY);
+    }
+
+    private void initGuardBandPlanes(double fovX, double fovY) {
+        double halfFovX = Math.atan(Math.tan(fovX / 2) * GUARD_BAND_SCALE);
+        double halfFovY = Math.atan(Math.tan(fovY / 2) * GUARD_BAND_SCALE);
+
+        guardBandPlanes = new double[GUARD_BAND_PLANE_COUNT * 4];
+
+        setPlane(guardBandPlanes, 0, new Plane(new Vector3(0, 0, 0), new Vector3(Math.cos(halfFovX), 0, Math.sin(halfFovX))));
+        setPlane(guardBandPlanes, 1, new Plane(new Vector3(0, 0, 0), new Vector3(-Math.cos(halfFovX), 0, Math.sin(halfFovX))));
+        setPlane(guardBandPlanes, 2, new Plane(new Vector3(0, 0, 0), new Vector3(0, -Math.cos(halfFovY), Math.sin(halfFovY))));
+        setPlane(guardBandPlanes, 3, new Plane(new Vector3(0, 0, 0), new Vector3(0, Math.cos(halfFovY), Math.sin(halfFovY))));
     }
 
     private void initFrustumPlanes(double fovX, double fovY, double zNear, double zFar) {
-        frustumPlanes = new HashMap<>();
+        frustumPlanes = new double[PLANE_COUNT * 4];
 
         double cosHalfFovY = Math.cos(fovY / 2);
         double sinHalfFovY = Math.sin(fovY / 2);
@@ -26,106 +63,205 @@ public class Clipping {
                 new Vector3(cosHalfFovX, 0, sinHalfFovX)
         );
 
-        frustumPlanes.put(EFrustumPlane.LEFT_FRUSTUM_PLANE, leftFrustumPlane);
+        setPlane(frustumPlanes, EFrustumPlane.LEFT_FRUSTUM_PLANE.ordinal(), leftFrustumPlane);
 
         Plane rightFrustumPlane = new Plane(
                 new Vector3(0, 0, 0),
                 new Vector3(-cosHalfFovX, 0, sinHalfFovX)
         );
 
-        frustumPlanes.put(EFrustumPlane.RIGHT_FRUSTUM_PLANE, rightFrustumPlane);
+        setPlane(frustumPlanes, EFrustumPlane.RIGHT_FRUSTUM_PLANE.ordinal(), rightFrustumPlane);
 
         Plane topFrustumPlane = new Plane(
                 new Vector3(0, 0, 0),
                 new Vector3(0, -cosHalfFovY, sinHalfFovY)
         );
 
-        frustumPlanes.put(EFrustumPlane.TOP_FRUSTUM_PLANE, topFrustumPlane);
+        setPlane(frustumPlanes, EFrustumPlane.TOP_FRUSTUM_PLANE.ordinal(), topFrustumPlane);
 
         Plane bottomFrustumPlane = new Plane(
                 new Vector3(0, 0, 0),
                 new Vector3(0, cosHalfFovY, sinHalfFovY)
         );
 
-        frustumPlanes.put(EFrustumPlane.BOTTOM_FRUSTUM_PLANE, bottomFrustumPlane);
+        setPlane(frustumPlanes, EFrustumPlane.BOTTOM_FRUSTUM_PLANE.ordinal(), bottomFrustumPlane);
 
         Plane nearFrustumPlane = new Plane(
                 new Vector3(0, 0, zNear),
                 new Vector3(0, 0, 1)
         );
 
-        frustumPlanes.put(EFrustumPlane.NEAR_FRUSTUM_PLANE, nearFrustumPlane);
+        setPlane(frustumPlanes, EFrustumPlane.NEAR_FRUSTUM_PLANE.ordinal(), nearFrustumPlane);
 
         Plane farFrustumPlane = new Plane(
                 new Vector3(0, 0, zFar),
                 new Vector3(0, 0, -1)
         );
 
-        frustumPlanes.put(EFrustumPlane.FAR_FRUSTUM_PLANE, farFrustumPlane);
+        setPlane(frustumPlanes, EFrustumPlane.FAR_FRUSTUM_PLANE.ordinal(), farFrustumPlane);
+    }
+
+    private static void setPlane(double[] planes, int index, Plane plane) {
+        Vector3 point = plane.point();
+        Vector3 normal = plane.normal();
+
+        planes[index * 4] = normal.x();
+        planes[index * 4 + 1] = normal.y();
+        planes[index * 4 + 2] = normal.z();
+        planes[index * 4 + 3] = -(point.x() * normal.x() + point.y() * normal.y() + point.z() * normal.z());
     }
 
     double doubleLerp(double a, double b, double t) {
         return a + (b - a) * t;
     }
 
-    public void clipPolygon(Polygon polygon) {
-        for (Plane plane : frustumPlanes.values()) {
-            clipPolygonAgainstPlane(polygon, plane);
+    // One bit per EFrustumPlane ordinal, set when the camera-space point is not on the inside of that plane.
+    // When the outcodes of all vertices share a bit the polygon is entirely outside, and when all are zero it is entirely inside.
+    public int computeOutcode(double x, double y, double z) {
+        return computeOutcode(frustumPlanes, PLANE_COUNT, x, y, z, 1);
+    }
+
+    // Non-zero when the camera-space point is outside one of the guard band's side planes
+    public int computeGuardBandOutcode(double x, double y, double z) {
+        return computeOutcode(guardBandPlanes, GUARD_BAND_PLANE_COUNT, x, y, z, 1);
+    }
+
+    public int computeClipSpaceOutcode(double x, double y, double z, double w) {
+        return computeOutcode(CLIP_SPACE_PLANES, PLANE_COUNT, x, y, z, w);
+    }
+
+    public int computeClipSpaceGuardBandOutcode(double x, double y, double z, double w) {
+        return computeOutcode(CLIP_SPACE_GUARD_BAND_PLANES, GUARD_BAND_PLANE_COUNT, x, y, z, w);
+    }
+
+    private static int computeOutcode(double[] planes, int planeCount, double x, double y, double z, double w) {
+        int outcode = 0;
+
+        for (int i = 0; i < planeCount; i++) {
+            if (getSignedDistance(planes, i, x, y, z, w) <= 0) {
+                outcode |= 1 << i;
+            }
         }
+
+        return outcode;
     }
 
-    private void clipPolygonAgainstPlane(Polygon polygon, Plane plane) {
-        if (polygon.getVertices().isEmpty()) {
-            return;
+    // Whether a camera-space sphere is completely outside the frustum, completely inside it, or crosses one of its planes
+    public EFrustumContainment classifySphere(double centerX, double centerY, double centerZ, double radius) {
+        EFrustumContainment containment = EFrustumContainment.INSIDE_FRUSTUM;
+
+        for (int plane = 0; plane < PLANE_COUNT; plane++) {
+            double distance = getSignedDistance(frustumPlanes, plane, centerX, centerY, centerZ, 1);
+
+            if (distance < -radius) {
+                return EFrustumContainment.OUTSIDE_FRUSTUM;
+            }
+
+            if (distance < radius) {
+                containment = EFrustumContainment.INTERSECTS_FRUSTUM;
+            }
         }
 
-        Vector3 planePoint = plane.point();
-        Vector3 planeNormal = plane.normal();
+        return containment;
+    }
 
-        List<Vector3> insideVertices = new ArrayList<>();
-        List<Texture> insideTextureCoordinates = new ArrayList<>();
+    // Same test for the convex hull of camera-space points stored as x, y, z triples
+    public EFrustumContainment classifyPoints(double[] points, int pointCount) {
+        EFrustumContainment containment = EFrustumContainment.INSIDE_FRUSTUM;
 
-        Vector3 previousVertex = polygon.getVertices().get(polygon.getVertices().size() - 1);
-        Texture previousTextureCoordinate = polygon.getTextureCoordinates().get(polygon.getTextureCoordinates().size() - 1);
+        for (int plane = 0; plane < PLANE_COUNT; plane++) {
+            int insideCount = 0;
 
-        double previousDot = Vector3.dot(Vector3.subtract(previousVertex, planePoint), planeNormal);
+            for (int i = 0; i < pointCount; i++) {
+                if (getSignedDistance(frustumPlanes, plane, points[i * 3], points[i * 3 + 1], points[i * 3 + 2], 1) > 0) {
+                    insideCount++;
+                }
+            }
 
-        for (int i = 0; i < polygon.getVertices().size(); i++) {
-            Vector3 currentVertex = polygon.getVertices().get(i);
-            Texture currentTextureCoordinate = polygon.getTextureCoordinates().get(i);
+            if (insideCount == 0) {
+                return EFrustumContainment.OUTSIDE_FRUSTUM;
+            }
+
+            if (insideCount < pointCount) {
+                containment = EFrustumContainment.INTERSECTS_FRUSTUM;
+            }
+        }
+
+        return containment;
+    }
+
+    private static double getSignedDistance(double[] planes, int plane, double x, double y, double z, double w) {
+        return planes[plane * 4] * x + planes[plane * 4 + 1] * y + planes[plane * 4 + 2] * z + planes[plane * 4 + 3] * w;
+    }
+
+    public void clipPolygon(Polygon polygon) {
+        clipPolygon(polygon, (1 << PLANE_COUNT) - 1);
+    }
 
-            double currentDot = Vector3.dot(Vector3.subtract(currentVertex, planePoint), planeNormal);
+    // Clips a camera-space polygon only against the planes whose outcode bits are set in planeMask; the others would leave it unchanged
+    public void clipPolygon(Polygon polygon, int planeMask) {
+        clipPolygon(polygon, planeMask, frustumPlanes);
+    }
+
+    // Same for a polygon in homogeneous clip space, where the planes do not depend on the field of view
+    public void clipPolygonInClipSpace(Polygon polygon, int planeMask) {
+        clipPolygon(polygon, planeMask, CLIP_SPACE_PLANES);
+    }
 
-            if (currentDot * previousDot < 0) {
+    private void clipPolygon(Polygon polygon, int planeMask, double[] planes) {
+        for (int i = 0; i < PLANE_COUNT; i++) {
+            if ((planeMask & (1 << i)) != 0) {
+                clipPolygonAgainstPlane(polygon, planes, i);
+            }
+        }
+    }
+
+    // Sutherland-Hodgman pass from the polygon's current arrays into its spare ones, interpolating all four coordinates.
+    // Rounding can make a nearly degenerate polygon cross a plane more than twice, so vertices past the capacity are dropped.
+    private void clipPolygonAgainstPlane(Polygon polygon, double[] planes, int plane) {
+        int vertexCount = polygon.getVertexCount();
+
+        if (vertexCount == 0) {
+            return;
+        }
+
+        double[] positions = polygon.getPositions();
+        double[] textureCoordinates = polygon.getTextureCoordinates();
+        double[] insidePositions = polygon.getSparePositions();
+        double[] insideTextureCoordinates = polygon.getSpareTextureCoordinates();
+        int insideCount = 0;
+
+        int previous = vertexCount - 1;
+        double previousDot = getSignedDistance(planes, plane, positions[previous * 4], positions[previous * 4 + 1], positions[previous * 4 + 2], positions[previous * 4 + 3]);
+
+        for (int current = 0; current < vertexCount; current++) {
+            double currentDot = getSignedDistance(planes, plane, positions[current * 4], positions[current * 4 + 1], positions[current * 4 + 2], positions[current * 4 + 3]);
+
+            if (currentDot * previousDot < 0 && insideCount < Polygon.MAX_VERTICES) {
                 double t = previousDot / (previousDot - currentDot);
 
-                Vector3 intersectionPoint = new Vector3(
-                        doubleLerp(previousVertex.x(), currentVertex.x(), t),
-                        doubleLerp(previousVertex.y(), currentVertex.y(), t),
-				        doubleLerp(previousVertex.z(), currentVertex.z(), t)
-                );
+                for (int axis = 0; axis < 4; axis++) {
+                    insidePositions[insideCount * 4 + axis] = doubleLerp(positions[previous * 4 + axis], positions[current * 4 + axis], t);
+                }
 
-                Texture interpolatedTextureCoordinate = new Texture(
-                        doubleLerp(previousTextureCoordinate.u(), currentTextureCoordinate.u(), t),
-                        doubleLerp(previousTextureCoordinate.v(), currentTextureCoordinate.v(), t)
-                );
+                for (int axis = 0; axis < 2; axis++) {
+                    insideTextureCoordinates[insideCount * 2 + axis] = doubleLerp(textureCoordinates[previous * 2 + axis], textureCoordinates[current * 2 + axis], t);
+                }
 
-                insideVertices.add(intersectionPoint);
-                insideTextureCoordinates.add(interpolatedTextureCoordinate);
+                insideCount++;
             }
 
-            if (currentDot > 0) {
-                insideVertices.add(currentVertex);
-                insideTextureCoordinates.add(currentTextureCoordinate);
+            if (currentDot > 0 && insideCount < Polygon.MAX_VERTICES) {
+                System.arraycopy(positions, current * 4, insidePositions, insideCount * 4, 4);
+                System.arraycopy(textureCoordinates, current * 2, insideTextureCoordinates, insideCount * 2, 2);
+
+                insideCount++;
             }
 
             previousDot = currentDot;
-
-            previousVertex = currentVertex;
-            previousTextureCoordinate = currentTextureCoordinate;
+            previous = current;
         }
 
-        polygon.setVertices(insideVertices);
-        polygon.setTextureCoordinates(insideTextureCoordinates);
+        polygon.swapBuffers(insideCount);
     }
 }
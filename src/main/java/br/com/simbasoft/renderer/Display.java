@@ -1,49 +1,65 @@
 package br.com.simbasoft.renderer;
 
-import com.sun.jna.Memory;
-import io.github.libsdl4j.api.render.SDL_Renderer;
-import io.github.libsdl4j.api.render.SDL_Texture;
-import io.github.libsdl4j.api.video.SDL_DisplayMode;
-import io.github.libsdl4j.api.video.SDL_Window;
-
-import static io.github.libsdl4j.api.Sdl.SDL_Init;
-import static io.github.libsdl4j.api.Sdl.SDL_Quit;
-import static io.github.libsdl4j.api.SdlSubSystemConst.SDL_INIT_EVERYTHING;
-import static io.github.libsdl4j.api.mouse.SdlMouse.SDL_SetRelativeMouseMode;
-import static io.github.libsdl4j.api.pixels.SDL_PixelFormatEnum.SDL_PIXELFORMAT_RGB888;
-import static io.github.libsdl4j.api.render.SDL_TextureAccess.SDL_TEXTUREACCESS_STREAMING;
-import static io.github.libsdl4j.api.render.SdlRender.*;
-import static io.github.libsdl4j.api.video.SDL_WindowFlags.*;
-import static io.github.libsdl4j.api.video.SdlVideo.*;
-import static io.github.libsdl4j.api.video.SdlVideoConst.SDL_WINDOWPOS_CENTERED;
+import java.util.Arrays;
 
 public class Display {
     public static final int FPS = 60;
     public static final int FRAME_TARGET_TIME = 1000 / FPS;
 
-    private SDL_Window window;
-    private int windowWidth;
-    private int windowHeight;
-    private SDL_Renderer renderer;
+    // Side of the square pixel blocks tracked by the hierarchical depth buffer, must divide TileRasterizer.TILE_SIZE
+    public static final int HI_Z_BLOCK_SIZE = 8;
+    private static final int HI_Z_BLOCK_SHIFT = 3;
+
+    private final RenderTarget renderTarget;
+    private final int windowWidth;
+    private final int windowHeight;
     private final int[] colorBuffer;
+    private final int[] background;
     private final double[] zBuffer;
-    private final SDL_Texture colorBufferTexture;
+    private final int hiZColumns;
+    private final int hiZRows;
+    private final double[] hiZBuffer;
+    private final boolean[] hiZDirty;
+    private final int[] hiZCoverage;
+    private final ScreenRect screenRect;
+    private final RenderStatistics statistics;
     private ERenderMethod renderMethod;
     private ECullMethod cullMethod;
-
-    public Display() {
-        this.initializeWindow();
+    private ESortMethod sortMethod;
+    private EClipMethod clipMethod;
+    private EClipSpace clipSpace;
+    private EClearMethod clearMethod;
+    private EPipelineMethod pipelineMethod;
+    private ETextureFilterMethod textureFilterMethod;
+    private ETextureLayout textureLayout;
+    private boolean isFullClearNeeded;
+
+    public Display(RenderTarget renderTarget) {
+        this.renderTarget = renderTarget;
+        this.windowWidth = renderTarget.getWidth();
+        this.windowHeight = renderTarget.getHeight();
 
         this.colorBuffer = new int[windowWidth * windowHeight];
+        this.background = new int[windowWidth * windowHeight];
         this.zBuffer = new double[windowWidth * windowHeight];
 
-        this.colorBufferTexture = SDL_CreateTexture(
-                renderer,
-                SDL_PIXELFORMAT_RGB888,
-                SDL_TEXTUREACCESS_STREAMING,
-                windowWidth,
-                windowHeight
-        );
+        // Farthest depth stored in every block, refreshed lazily after the block has been written to
+        this.hiZColumns = (windowWidth + HI_Z_BLOCK_SIZE - 1) / HI_Z_BLOCK_SIZE;
+        this.hiZRows = (windowHeight + HI_Z_BLOCK_SIZE - 1) / HI_Z_BLOCK_SIZE;
+        this.hiZBuffer = new double[hiZColumns * hiZRows];
+        this.hiZDirty = new boolean[hiZColumns * hiZRows];
+        this.hiZCoverage = new int[hiZColumns * hiZRows];
+
+        this.screenRect = new ScreenRect(0, 0, windowWidth, windowHeight);
+        this.statistics = new RenderStatistics();
+        this.sortMethod = ESortMethod.SORT_NONE;
+        this.clipMethod = EClipMethod.CLIP_FRUSTUM;
+        this.clipSpace = EClipSpace.CLIP_CAMERA_SPACE;
+        this.clearMethod = EClearMethod.CLEAR_FULL;
+        this.pipelineMethod = EPipelineMethod.PIPELINE_NONE;
+        this.textureFilterMethod = ETextureFilterMethod.FILTER_NEAREST;
+        this.textureLayout = ETextureLayout.LAYOUT_ROW_MAJOR;
+        this.isFullClearNeeded = true;
     }
 
     public int getWindowWidth() {
@@ -54,47 +70,16 @@ public class Display {
         return windowHeight;
     }
 
-    private void initializeWindow() {
-        if (SDL_Init(SDL_INIT_EVERYTHING) != 0) {
-            throw new RuntimeException("Error initializing SDL.");
-        }
-
-        SDL_DisplayMode displayMode = new SDL_DisplayMode();
-        SDL_GetCurrentDisplayMode(0, displayMode);
-
-        int fullScreenWidth = displayMode.w;
-        int fullScreenHeight = displayMode.h;
-
-        windowWidth = fullScreenWidth / 3;
-        windowHeight = fullScreenHeight / 3;
-
-        window = SDL_CreateWindow(
-                "3drenderer",
-                SDL_WINDOWPOS_CENTERED,
-                SDL_WINDOWPOS_CENTERED,
-                fullScreenWidth,
-                fullScreenHeight,
-                SDL_WINDOW_MAXIMIZED | SDL_WINDOW_RESIZABLE
-        );
-
-        if (window == null) {
-            throw new RuntimeException("Error creating SDL window.");
-        }
-
-        renderer = SDL_CreateRenderer(window, -1, 0);
-
-        if (renderer == null) {
-            throw new RuntimeException("Error creating SDL renderer.");
-        }
+    public ScreenRect getScreenRect() {
+        return screenRect;
+    }
 
-        SDL_SetWindowFullscreen(window, SDL_WINDOW_FULLSCREEN);
-        SDL_SetRelativeMouseMode(true);
+    public RenderStatistics getStatistics() {
+        return statistics;
     }
 
     public void destroyWindow() {
-        SDL_DestroyRenderer(renderer);
-        SDL_DestroyWindow(window);
-        SDL_Quit();
+        renderTarget.destroy();
     }
 
     public void drawPixel(int x, int y, int color) {
@@ -103,7 +88,17 @@ public class Display {
         }
     }
 
+    private void drawPixel(int x, int y, int color, ScreenRect clip) {
+        if (clip.contains(x, y)) {
+            colorBuffer[(windowWidth * y) + x] = color;
+        }
+    }
+
     public void drawLine(int x0, int y0, int x1, int y1, int color) {
+        drawLine(x0, y0, x1, y1, color, screenRect);
+    }
+
+    private void drawLine(int x0, int y0, int x1, int y1, int color, ScreenRect clip) {
         int delta_x = x1 - x0;
         int delta_y = y1 - y0;
 
@@ -116,7 +111,7 @@ public class Display {
         double current_y = y0;
 
         for (int i = 0; i <= side_length; i++) {
-            drawPixel((int) Math.round(current_x), (int) Math.round(current_y), color);
+            drawPixel((int) Math.round(current_x), (int) Math.round(current_y), color, clip);
             current_x += x_inc;
             current_y += y_inc;
         }
@@ -138,63 +133,158 @@ public class Display {
         drawLine(windowWidth - 1, 0, windowWidth - 1, windowHeight - 1, color);
     }
 
-    private void renderPresent() {
-        SDL_RenderPresent(renderer);
+    public void renderColorBuffer() {
+        renderTarget.present(colorBuffer);
+    }
+
+    public void clearColorBuffer(int color) {
+        Arrays.fill(colorBuffer, color);
     }
 
-    public void renderColorBuffer() {
-        try (Memory colorBufferMemory = new Memory(colorBuffer.length * 4L)) {
-            colorBufferMemory.write(0, colorBuffer, 0, colorBuffer.length);
-
-            SDL_UpdateTexture(
-                    colorBufferTexture,
-                    null,
-                    colorBufferMemory,
-                    windowWidth * 4
-            );
+    public void clearZBuffer() {
+        Arrays.fill(zBuffer, 1);
+
+        Arrays.fill(hiZBuffer, 1);
+        Arrays.fill(hiZDirty, false);
+        Arrays.fill(hiZCoverage, 0);
+    }
+
+    // The background, a solid color with a grid over it, is drawn once and then copied in by every clear
+    public void setBackground(int color, int gridSpacing, int gridColor) {
+        clearColorBuffer(color);
+        drawGrid(gridSpacing, gridColor);
+
+        System.arraycopy(colorBuffer, 0, background, 0, background.length);
+
+        isFullClearNeeded = true;
+    }
+
+    // Restores the background and the cleared depth, either everywhere or only in the blocks the last frame drew into
+    public void clear() {
+        if (clearMethod == EClearMethod.CLEAR_FULL || isFullClearNeeded) {
+            System.arraycopy(background, 0, colorBuffer, 0, colorBuffer.length);
+            clearZBuffer();
 
-            SDL_RenderCopy(renderer, colorBufferTexture, null, null);
+            statistics.recordClearedPixels(colorBuffer.length);
+        } else {
+            clearDirtyBlocks();
         }
 
-        this.renderPresent();
+        // Lines and vertex markers are drawn without depth, so the block coverage does not show where they went
+        isFullClearNeeded = shouldRenderWireframe() || shouldRenderVertex();
     }
 
-    public void clearColorBuffer(int color) {
-        for (int y = 0; y < windowHeight; y++) {
-            for (int x = 0; x < windowWidth; x++) {
-                drawPixel(x, y, color);
+    // A block was drawn into when its coverage is not zero, since the first depth write to every pixel is counted.
+    // Each block row is cleared from its first to its last drawn block.
+    private void clearDirtyBlocks() {
+        long clearedPixels = 0;
+
+        for (int blockRow = 0; blockRow < hiZRows; blockRow++) {
+            int firstBlock = blockRow * hiZColumns;
+            int lastBlock = firstBlock + hiZColumns - 1;
+
+            while (firstBlock <= lastBlock && hiZCoverage[firstBlock] == 0) {
+                firstBlock++;
+            }
+
+            while (lastBlock >= firstBlock && hiZCoverage[lastBlock] == 0) {
+                lastBlock--;
+            }
+
+            if (firstBlock > lastBlock) {
+                continue;
+            }
+
+            int minX = (firstBlock - blockRow * hiZColumns) << HI_Z_BLOCK_SHIFT;
+            int maxX = Math.min((lastBlock - blockRow * hiZColumns + 1) << HI_Z_BLOCK_SHIFT, windowWidth);
+            int minY = blockRow << HI_Z_BLOCK_SHIFT;
+            int maxY = Math.min(minY + HI_Z_BLOCK_SIZE, windowHeight);
+
+            for (int y = minY; y < maxY; y++) {
+                int rowStart = windowWidth * y;
+
+                System.arraycopy(background, rowStart + minX, colorBuffer, rowStart + minX, maxX - minX);
+                Arrays.fill(zBuffer, rowStart + minX, rowStart + maxX, 1);
             }
+
+            Arrays.fill(hiZBuffer, firstBlock, lastBlock + 1, 1);
+            Arrays.fill(hiZDirty, firstBlock, lastBlock + 1, false);
+            Arrays.fill(hiZCoverage, firstBlock, lastBlock + 1, 0);
+
+            clearedPixels += (long) (maxX - minX) * (maxY - minY);
         }
+
+        statistics.recordClearedPixels(clearedPixels);
     }
 
-    public void clearZBuffer() {
-        for (int y = 0; y < windowHeight; y++) {
-            for (int x = 0; x < windowWidth; x++) {
-                zBuffer[(windowWidth * y) + x] = 1;
+    private double getHiZ(int blockColumn, int blockRow) {
+        int block = blockRow * hiZColumns + blockColumn;
+
+        if (hiZDirty[block]) {
+            int minX = blockColumn << HI_Z_BLOCK_SHIFT;
+            int minY = blockRow << HI_Z_BLOCK_SHIFT;
+            int maxX = Math.min(minX + HI_Z_BLOCK_SIZE, windowWidth);
+            int maxY = Math.min(minY + HI_Z_BLOCK_SIZE, windowHeight);
+
+            // Until every pixel of the block has been drawn, the cleared depth of 1 is still its farthest depth
+            if (hiZCoverage[block] < (maxX - minX) * (maxY - minY)) {
+                return 1;
+            }
+
+            double farthest = 0;
+
+            for (int y = minY; y < maxY; y++) {
+                for (int x = minX; x < maxX; x++) {
+                    farthest = Math.max(farthest, zBuffer[windowWidth * y + x]);
+                }
             }
+
+            hiZBuffer[block] = farthest;
+            hiZDirty[block] = false;
         }
+
+        return hiZBuffer[block];
     }
 
-    public void drawTriangle(Triangle triangle, int color) {
-        drawLine((int) triangle.points()[0].getX(), (int) triangle.points()[0].getY(), (int) triangle.points()[1].getX(), (int) triangle.points()[1].getY(), color);
-        drawLine((int) triangle.points()[1].getX(), (int) triangle.points()[1].getY(), (int) triangle.points()[2].getX(), (int) triangle.points()[2].getY(), color);
-        drawLine((int) triangle.points()[2].getX(), (int) triangle.points()[2].getY(), (int) triangle.points()[0].getX(), (int) triangle.points()[0].getY(), color);
+    public void drawTriangle(TriangleBuffer triangles, int triangle, int color) {
+        drawTriangle(triangles, triangle, color, screenRect);
+    }
+
+    public void drawTriangle(TriangleBuffer triangles, int triangle, int color, ScreenRect clip) {
+        for (int corner = 0; corner < 3; corner++) {
+            int next = corner == 2 ? 0 : corner + 1;
+
+            drawLine(
+                    (int) triangles.getX(triangle, corner), (int) triangles.getY(triangle, corner),
+                    (int) triangles.getX(triangle, next), (int) triangles.getY(triangle, next),
+                    color, clip
+            );
+        }
     }
 
     public void drawRect(int x, int y, int width, int height, int color) {
+        drawRect(x, y, width, height, color, screenRect);
+    }
+
+    public void drawRect(int x, int y, int width, int height, int color, ScreenRect clip) {
         for (int j = y; j < y + height; j++) {
             for (int i = x; i < x + width; i++) {
-                drawPixel(i, j, color);
+                drawPixel(i, j, color, clip);
             }
         }
     }
 
-    public void drawFilledTriangle(Triangle t) {
+    public void drawFilledTriangle(TriangleBuffer triangles, int triangle) {
+        drawFilledTriangle(triangles, triangle, screenRect);
+    }
+
+    public void drawFilledTriangle(TriangleBuffer triangles, int triangle, ScreenRect clip) {
         drawFilledTriangle(
-                (int) t.points()[0].getX(), (int) t.points()[0].getY(), t.points()[0].getZ(), t.points()[0].getW(),
-                (int) t.points()[1].getX(), (int) t.points()[1].getY(), t.points()[1].getZ(), t.points()[1].getW(),
-                (int) t.points()[2].getX(), (int) t.points()[2].getY(), t.points()[2].getZ(), t.points()[2].getW(),
-                t.color()
+                (int) triangles.getX(triangle, 0), (int) triangles.getY(triangle, 0), triangles.getZ(triangle, 0), triangles.getW(triangle, 0),
+                (int) triangles.getX(triangle, 1), (int) triangles.getY(triangle, 1), triangles.getZ(triangle, 1), triangles.getW(triangle, 1),
+                (int) triangles.getX(triangle, 2), (int) triangles.getY(triangle, 2), triangles.getZ(triangle, 2), triangles.getW(triangle, 2),
+                triangles.getColor(triangle),
+                clip
         );
     }
 
@@ -202,259 +292,312 @@ public class Display {
             int x0, int y0, double z0, double w0,
             int x1, int y1, double z1, double w1,
             int x2, int y2, double z2, double w2,
-            int color
+            int color,
+            ScreenRect clip
     ) {
-        if (y0 > y1) {
-            y1 = Swap.intSwap(y0, y0=y1);
-            z1 = Swap.doubleSwap(z0, z0=z1);
-            w1 = Swap.doubleSwap(w0, w0=w1);
-            x1 = Swap.intSwap(x0, x0=x1);
-        }
+        rasterizeTriangle(
+                x0, y0, w0, 0, 0,
+                x1, y1, w1, 0, 0,
+                x2, y2, w2, 0, 0,
+                null, color, clip
+        );
+    }
 
-        if (y1 > y2) {
-            y2 = Swap.intSwap(y1, y1=y2);
-            z2 = Swap.doubleSwap(z1, z1=z2);
-            w2 = Swap.doubleSwap(w1, w1=w2);
-            x2 = Swap.intSwap(x1, x1=x2);
-        }
+    public void drawTexturedTriangle(TriangleBuffer triangles, int triangle, ScreenRect clip) {
+        drawTexturedTriangle(
+                (int) triangles.getX(triangle, 0), (int) triangles.getY(triangle, 0), triangles.getZ(triangle, 0), triangles.getW(triangle, 0), triangles.getU(triangle, 0), triangles.getV(triangle, 0),
+                (int) triangles.getX(triangle, 1), (int) triangles.getY(triangle, 1), triangles.getZ(triangle, 1), triangles.getW(triangle, 1), triangles.getU(triangle, 1), triangles.getV(triangle, 1),
+                (int) triangles.getX(triangle, 2), (int) triangles.getY(triangle, 2), triangles.getZ(triangle, 2), triangles.getW(triangle, 2), triangles.getU(triangle, 2), triangles.getV(triangle, 2),
+                triangles.getTexture(triangle),
+                clip
+        );
+    }
 
-        if (y0 > y1) {
-            y1 = Swap.intSwap(y0, y0=y1);
-            z1 = Swap.doubleSwap(z0, z0=z1);
-            w1 = Swap.doubleSwap(w0, w0=w1);
-            x1 = Swap.intSwap(x0, x0=x1);
-        }
+    public void drawTexturedTriangle(
+        int x0, int y0, double z0, double w0, double u0, double v0,
+        int x1, int y1, double z1, double w1, double u1, double v1,
+        int x2, int y2, double z2, double w2, double u2, double v2,
+        ImageTexture texture
+    ) {
+        drawTexturedTriangle(
+                x0, y0, z0, w0, u0, v0,
+                x1, y1, z1, w1, u1, v1,
+                x2, y2, z2, w2, u2, v2,
+                texture,
+                screenRect
+        );
+    }
+
+    private void drawTexturedTriangle(
+        int x0, int y0, double z0, double w0, double u0, double v0,
+        int x1, int y1, double z1, double w1, double u1, double v1,
+        int x2, int y2, double z2, double w2, double u2, double v2,
+        ImageTexture texture,
+        ScreenRect clip
+    ) {
+        rasterizeTriangle(
+                x0, y0, w0, u0, 1.0 - v0,
+                x1, y1, w1, u1, 1.0 - v1,
+                x2, y2, w2, u2, 1.0 - v2,
+                texture, 0, clip
+        );
+    }
 
-        Vector4 point_a = new Vector4(x0, y0, z0, w0);
-        Vector4 point_b = new Vector4(x1, y1, z1, w1);
-        Vector4 point_c = new Vector4(x2, y2, z2, w2);
+    // Twice the signed area of (a, b, p), positive when p is on the inner side of the edge a -> b
+    private static long edgeFunction(long ax, long ay, long bx, long by, long px, long py) {
+        return (bx - ax) * (py - ay) - (by - ay) * (px - ax);
+    }
 
-        // Flat bottom part
-        double inv_slope_1 = 0;
-        double inv_slope_2 = 0;
+    // Top-left fill rule: pixels exactly on an edge belong to the triangle only if it is a top or a left edge,
+    // so pixels on an edge shared by two triangles are drawn once
+    private static long edgeBias(int ax, int ay, int bx, int by) {
+        int dx = bx - ax;
+        int dy = by - ay;
 
-        if (y1 - y0 != 0) inv_slope_1 = (double)(x1 - x0) / Math.abs(y1 - y0);
-        if (y2 - y0 != 0) inv_slope_2 = (double)(x2 - x0) / Math.abs(y2 - y0);
+        boolean isTopEdge = dy == 0 && dx > 0;
+        boolean isLeftEdge = dy < 0;
 
-        if (y1 - y0 != 0) {
-            for (int y = y0; y <= y1; y++) {
-                int x_start = (int) (x1 + (y - y1) * inv_slope_1);
-                int x_end = (int) (x0 + (y - y0) * inv_slope_2);
+        return (isTopEdge || isLeftEdge) ? 0 : -1;
+    }
 
-                if (x_end < x_start) {
-                    x_end = Swap.intSwap(x_start, x_start=x_end);
-                }
+    // Edge functions and the perspective-correct attributes (1/w, u/w and v/w) are set up once per triangle
+    // and then stepped incrementally across every span. A null texture fills the triangle with color.
+    private void rasterizeTriangle(
+            int x0, int y0, double w0, double u0, double v0,
+            int x1, int y1, double w1, double u1, double v1,
+            int x2, int y2, double w2, double u2, double v2,
+            ImageTexture texture, int color,
+            ScreenRect clip
+    ) {
+        long area = edgeFunction(x0, y0, x1, y1, x2, y2);
 
-                for (int x = x_start; x <= x_end; x++) {
-                    drawTrianglePixel(x, y, color,
-                            point_a, point_b, point_c
-                    );
-                }
-            }
+        if (area == 0) {
+            return;
         }
 
-        // Flat top part
-        inv_slope_1 = 0;
-        inv_slope_2 = 0;
+        if (area < 0) {
+            y2 = Swap.intSwap(y1, y1=y2);
+            x2 = Swap.intSwap(x1, x1=x2);
+            w2 = Swap.doubleSwap(w1, w1=w2);
+            u2 = Swap.doubleSwap(u1, u1=u2);
+            v2 = Swap.doubleSwap(v1, v1=v2);
+            area = -area;
+        }
 
-        if (y2 - y1 != 0) inv_slope_1 = (float)(x2 - x1) / Math.abs(y2 - y1);
-        if (y2 - y0 != 0) inv_slope_2 = (float)(x2 - x0) / Math.abs(y2 - y0);
+        int minX = Math.max(Math.min(x0, Math.min(x1, x2)), clip.minX());
+        int minY = Math.max(Math.min(y0, Math.min(y1, y2)), clip.minY());
+        int maxX = Math.min(Math.max(x0, Math.max(x1, x2)), clip.maxX() - 1);
+        int maxY = Math.min(Math.max(y0, Math.max(y1, y2)), clip.maxY() - 1);
 
-        if (y2 - y1 != 0) {
-            for (int y = y1; y <= y2; y++) {
-                int x_start = (int) (x1 + (y - y1) * inv_slope_1);
-                int x_end = (int) (x0 + (y - y0) * inv_slope_2);
+        if (minX > maxX || minY > maxY) {
+            return;
+        }
 
-                if (x_end < x_start) {
-                    x_end = Swap.intSwap(x_start, x_start=x_end);
-                }
+        // e0, e1 and e2 are the (unnormalized) barycentric weights of vertex 0, 1 and 2
+        long e0StepX = y1 - y2;
+        long e1StepX = y2 - y0;
+        long e2StepX = y0 - y1;
 
-                for (int x = x_start; x <= x_end; x++) {
-                    drawTrianglePixel(x, y, color,
-                            point_a, point_b, point_c
-                    );
-                }
-            }
-        }
-    }
+        long e0StepY = x2 - x1;
+        long e1StepY = x0 - x2;
+        long e2StepY = x1 - x0;
 
-    private void drawTrianglePixel(
-            int x, int y, int color,
-            Vector4 pointA, Vector4 pointB, Vector4 pointC
-    ) {
-        Vector2 p = new Vector2(x, y);
-        Vector2 a = Vector2.fromVector4(pointA);
-        Vector2 b = Vector2.fromVector4(pointB);
-        Vector2 c = Vector2.fromVector4(pointC);
-        Vector3 weights = Vector3.barycentricWeights(a, b, c, p);
+        long bias0 = edgeBias(x1, y1, x2, y2);
+        long bias1 = edgeBias(x2, y2, x0, y0);
+        long bias2 = edgeBias(x0, y0, x1, y1);
 
-        double alpha = weights.x();
-        double beta = weights.y();
-        double gamma = weights.z();
+        double inverseArea = 1.0 / area;
 
-        double interpolated_reciprocal_w;
+        double reciprocalW0 = (1.0 / w0) * inverseArea;
+        double reciprocalW1 = (1.0 / w1) * inverseArea;
+        double reciprocalW2 = (1.0 / w2) * inverseArea;
 
-        interpolated_reciprocal_w = (1.0 / pointA.getW()) * alpha + (1.0 / pointB.getW()) * beta + (1.0 / pointC.getW()) * gamma;
+        // Depth is 1 - 1/w, which is affine in screen space, so the nearest point of the triangle is one of its vertices
+        double nearestDepth = 1.0 - Math.max(1.0 / w0, Math.max(1.0 / w1, 1.0 / w2));
 
-        interpolated_reciprocal_w = 1.0 - interpolated_reciprocal_w;
+        int firstBlockColumn = minX >> HI_Z_BLOCK_SHIFT;
+        int firstBlockRow = minY >> HI_Z_BLOCK_SHIFT;
+        int lastBlockColumn = maxX >> HI_Z_BLOCK_SHIFT;
+        int lastBlockRow = maxY >> HI_Z_BLOCK_SHIFT;
 
-        if (interpolated_reciprocal_w < getZBufferAt(x, y)) {
-            drawPixel(x, y, color);
-            updateZBufferAt(x, y, interpolated_reciprocal_w);
+        if (isOccluded(nearestDepth, firstBlockColumn, firstBlockRow, lastBlockColumn, lastBlockRow)) {
+            statistics.recordOccludedTriangle();
+            return;
         }
-    }
 
-    private void drawTexel(
-        int x, int y, ImageTexture texture,
-        Vector4 pointA, Vector4 pointB, Vector4 pointC,
-        Texture a_uv, Texture b_uv, Texture c_uv
-    ) {
-        Vector2 p = new Vector2(x, y);
-        Vector2 a = Vector2.fromVector4(pointA);
-        Vector2 b = Vector2.fromVector4(pointB);
-        Vector2 c = Vector2.fromVector4(pointC);
-        Vector3 weights = Vector3.barycentricWeights(a, b, c, p);
+        int occludedBlocks = 0;
+        int shadedPixels = 0;
+        int depthRejectedPixels = 0;
+
+        double uOverW0 = (u0 / w0) * inverseArea;
+        double uOverW1 = (u1 / w1) * inverseArea;
+        double uOverW2 = (u2 / w2) * inverseArea;
+
+        double vOverW0 = (v0 / w0) * inverseArea;
+        double vOverW1 = (v1 / w1) * inverseArea;
+        double vOverW2 = (v2 / w2) * inverseArea;
+
+        double reciprocalWStepX = reciprocalW0 * e0StepX + reciprocalW1 * e1StepX + reciprocalW2 * e2StepX;
+        double reciprocalWStepY = reciprocalW0 * e0StepY + reciprocalW1 * e1StepY + reciprocalW2 * e2StepY;
+        double uOverWStepX = uOverW0 * e0StepX + uOverW1 * e1StepX + uOverW2 * e2StepX;
+        double vOverWStepX = vOverW0 * e0StepX + vOverW1 * e1StepX + vOverW2 * e2StepX;
+        double uOverWStepY = uOverW0 * e0StepY + uOverW1 * e1StepY + uOverW2 * e2StepY;
+        double vOverWStepY = vOverW0 * e0StepY + vOverW1 * e1StepY + vOverW2 * e2StepY;
+
+        boolean isTiled = shouldTileTextures();
+        int[] textureBuffer = texture != null ? (isTiled ? texture.getTiledMipLevel(0) : texture.getMeshTexture()) : null;
+        int textureWidth = texture != null ? texture.getWidth() : 0;
+        int textureHeight = texture != null ? texture.getHeight() : 0;
+        boolean isMipmapped = texture != null && texture.getMipLevelCount() > 1 && shouldUseMipmaps();
+
+        for (int blockRow = firstBlockRow; blockRow <= lastBlockRow; blockRow++) {
+            int blockMinY = Math.max(blockRow << HI_Z_BLOCK_SHIFT, minY);
+            int blockMaxY = Math.min((blockRow << HI_Z_BLOCK_SHIFT) + HI_Z_BLOCK_SIZE - 1, maxY);
+
+            for (int blockColumn = firstBlockColumn; blockColumn <= lastBlockColumn; blockColumn++) {
+                int blockMinX = Math.max(blockColumn << HI_Z_BLOCK_SHIFT, minX);
+                int blockMaxX = Math.min((blockColumn << HI_Z_BLOCK_SHIFT) + HI_Z_BLOCK_SIZE - 1, maxX);
+
+                int blockWidth = blockMaxX - blockMinX;
+                int blockHeight = blockMaxY - blockMinY;
+
+                long blockE0 = edgeFunction(x1, y1, x2, y2, blockMinX, blockMinY) + bias0;
+                long blockE1 = edgeFunction(x2, y2, x0, y0, blockMinX, blockMinY) + bias1;
+                long blockE2 = edgeFunction(x0, y0, x1, y1, blockMinX, blockMinY) + bias2;
+
+                // Edge functions are affine, so a block is outside an edge when its corner closest to the edge is
+                if (blockE0 + Math.max(0, e0StepX * blockWidth) + Math.max(0, e0StepY * blockHeight) < 0 ||
+                    blockE1 + Math.max(0, e1StepX * blockWidth) + Math.max(0, e1StepY * blockHeight) < 0 ||
+                    blockE2 + Math.max(0, e2StepX * blockWidth) + Math.max(0, e2StepY * blockHeight) < 0) {
+                    continue;
+                }
 
-        double alpha = weights.x();
-        double beta = weights.y();
-        double gamma = weights.z();
+                double blockReciprocalW = reciprocalW0 * (blockE0 - bias0) + reciprocalW1 * (blockE1 - bias1) + reciprocalW2 * (blockE2 - bias2);
+                double blockNearestDepth = Math.max(
+                        nearestDepth,
+                        1.0 - (blockReciprocalW + Math.max(0, reciprocalWStepX * blockWidth) + Math.max(0, reciprocalWStepY * blockHeight))
+                );
 
-        double interpolated_u;
-        double interpolated_v;
-        double interpolated_reciprocal_w;
+                if (blockNearestDepth >= getHiZ(blockColumn, blockRow)) {
+                    occludedBlocks++;
+                    continue;
+                }
 
-        interpolated_u = (a_uv.u() / pointA.getW()) * alpha + (b_uv.u() / pointB.getW()) * beta + (c_uv.u() / pointC.getW()) * gamma;
-        interpolated_v = (a_uv.v() / pointA.getW()) * alpha + (b_uv.v() / pointB.getW()) * beta + (c_uv.v() / pointC.getW()) * gamma;
+                // Texels a pixel step covers at the center of the block, measured on level 0, pick the mip level for the whole block
+                if (isMipmapped) {
+                    int centerOffsetX = (blockMaxX - blockMinX) >> 1;
+                    int centerOffsetY = (blockMaxY - blockMinY) >> 1;
 
-        interpolated_reciprocal_w = (1.0 / pointA.getW()) * alpha + (1.0 / pointB.getW()) * beta + (1.0 / pointC.getW()) * gamma;
+                    double centerReciprocalW = blockReciprocalW + reciprocalWStepX * centerOffsetX + reciprocalWStepY * centerOffsetY;
+                    double centerUOverW = uOverW0 * (blockE0 - bias0) + uOverW1 * (blockE1 - bias1) + uOverW2 * (blockE2 - bias2) + uOverWStepX * centerOffsetX + uOverWStepY * centerOffsetY;
+                    double centerVOverW = vOverW0 * (blockE0 - bias0) + vOverW1 * (blockE1 - bias1) + vOverW2 * (blockE2 - bias2) + vOverWStepX * centerOffsetX + vOverWStepY * centerOffsetY;
 
-        interpolated_u /= interpolated_reciprocal_w;
-        interpolated_v /= interpolated_reciprocal_w;
+                    double u = centerUOverW / centerReciprocalW;
+                    double v = centerVOverW / centerReciprocalW;
+                    double duDx = ((centerUOverW + uOverWStepX) / (centerReciprocalW + reciprocalWStepX) - u) * texture.getWidth();
+                    double dvDx = ((centerVOverW + vOverWStepX) / (centerReciprocalW + reciprocalWStepX) - v) * texture.getHeight();
+                    double duDy = ((centerUOverW + uOverWStepY) / (centerReciprocalW + reciprocalWStepY) - u) * texture.getWidth();
+                    double dvDy = ((centerVOverW + vOverWStepY) / (centerReciprocalW + reciprocalWStepY) - v) * texture.getHeight();
 
-        int textureWidth = texture.getWidth();
-        int textureHeight = texture.getHeight();
+                    double footprintSquared = Math.max(duDx * duDx + dvDx * dvDx, duDy * duDy + dvDy * dvDy);
 
-        int tex_x = Math.abs((int)(interpolated_u * textureWidth)) % textureWidth;
-        int tex_y = Math.abs((int)(interpolated_v * textureHeight)) % textureHeight;
+                    // Halving the exponent of the squared footprint gives floor(log2(footprint)) without a square root
+                    int level = Math.min(Math.max(Math.getExponent(footprintSquared) >> 1, 0), texture.getMipLevelCount() - 1);
 
-        interpolated_reciprocal_w = 1.0 - interpolated_reciprocal_w;
+                    textureBuffer = isTiled ? texture.getTiledMipLevel(level) : texture.getMipLevel(level);
+                    textureWidth = texture.getMipWidth(level);
+                    textureHeight = texture.getMipHeight(level);
+                }
 
-        if (interpolated_reciprocal_w < getZBufferAt(x, y)) {
-            drawPixel(x, y, texture.getMeshTexture()[(textureWidth * tex_y) + tex_x]);
-            updateZBufferAt(x, y, interpolated_reciprocal_w);
-        }
-    }
+                boolean blockWritten = false;
+                int blockCoverage = 0;
 
-    private double getZBufferAt(int x, int y) {
-        if (x < 0 || x >= windowWidth || y < 0 || y >= windowHeight) {
-            return 1.0;
-        }
+                long rowE0 = blockE0;
+                long rowE1 = blockE1;
+                long rowE2 = blockE2;
 
-        return zBuffer[(windowWidth * y) + x];
-    }
+                for (int y = blockMinY; y <= blockMaxY; y++) {
+                    long e0 = rowE0;
+                    long e1 = rowE1;
+                    long e2 = rowE2;
 
-    private void updateZBufferAt(int x, int y, double z) {
-        if (x < 0 || x >= windowWidth || y < 0 || y >= windowHeight) {
-            return;
-        }
+                    // Attributes are evaluated exactly at the start of every span and only stepped along it
+                    double spanE0 = e0 - bias0;
+                    double spanE1 = e1 - bias1;
+                    double spanE2 = e2 - bias2;
 
-        zBuffer[(windowWidth * y) + x] = z;
-    }
+                    double reciprocalW = reciprocalW0 * spanE0 + reciprocalW1 * spanE1 + reciprocalW2 * spanE2;
+                    double uOverW = uOverW0 * spanE0 + uOverW1 * spanE1 + uOverW2 * spanE2;
+                    double vOverW = vOverW0 * spanE0 + vOverW1 * spanE1 + vOverW2 * spanE2;
 
-    public void drawTexturedTriangle(
-        int x0, int y0, double z0, double w0, double u0, double v0,
-        int x1, int y1, double z1, double w1, double u1, double v1,
-        int x2, int y2, double z2, double w2, double u2, double v2,
-        ImageTexture texture
-    ) {
-        if (y0 > y1) {
-            y1 = Swap.intSwap(y0, y0=y1);
-            v1 = Swap.doubleSwap(v0, v0=v1);
-            z1 = Swap.doubleSwap(z0, z0=z1);
-            w1 = Swap.doubleSwap(w0, w0=w1);
-            x1 = Swap.intSwap(x0, x0=x1);
-            u1 = Swap.doubleSwap(u0, u0=u1);
-        }
+                    int index = windowWidth * y + blockMinX;
 
-        if (y1 > y2) {
-            y2 = Swap.intSwap(y1, y1=y2);
-            v2 = Swap.doubleSwap(v1, v1=v2);
-            z2 = Swap.doubleSwap(z1, z1=z2);
-            w2 = Swap.doubleSwap(w1, w1=w2);
-            x2 = Swap.intSwap(x1, x1=x2);
-            u2 = Swap.doubleSwap(u1, u1=u2);
-        }
+                    for (int x = blockMinX; x <= blockMaxX; x++) {
+                        if ((e0 | e1 | e2) >= 0) {
+                            double depth = 1.0 - reciprocalW;
 
-        if (y0 > y1) {
-            y1 = Swap.intSwap(y0, y0=y1);
-            v1 = Swap.doubleSwap(v0, v0=v1);
-            z1 = Swap.doubleSwap(z0, z0=z1);
-            w1 = Swap.doubleSwap(w0, w0=w1);
-            x1 = Swap.intSwap(x0, x0=x1);
-            u1 = Swap.doubleSwap(u0, u0=u1);
-        }
+                            // Depth is tested before any texture addressing is done
+                            if (depth < zBuffer[index]) {
+                                int pixelColor = color;
+
+                                if (textureBuffer != null) {
+                                    double u = uOverW / reciprocalW;
+                                    double v = vOverW / reciprocalW;
 
-        v0 = 1.0 - v0;
-        v1 = 1.0 - v1;
-        v2 = 1.0 - v2;
+                                    pixelColor = ImageTexture.sample(textureBuffer, textureWidth, textureHeight, isTiled, u, v);
+                                }
 
-        Vector4 point_a = new Vector4(x0, y0, z0, w0);
-        Vector4 point_b = new Vector4(x1, y1, z1, w1);
-        Vector4 point_c = new Vector4(x2, y2, z2, w2);
+                                if (zBuffer[index] == 1) {
+                                    blockCoverage++;
+                                }
 
-        Texture a_uv = new Texture(u0, v0);
-        Texture b_uv = new Texture(u1, v1);
-        Texture c_uv = new Texture(u2, v2);
+                                colorBuffer[index] = pixelColor;
+                                zBuffer[index] = depth;
+                                blockWritten = true;
 
-        // Flat bottom part
-        double inv_slope_1 = 0;
-        double inv_slope_2 = 0;
+                                shadedPixels++;
+                            } else {
+                                depthRejectedPixels++;
+                            }
+                        }
 
-        if (y1 - y0 != 0) inv_slope_1 = (double)(x1 - x0) / Math.abs(y1 - y0);
-        if (y2 - y0 != 0) inv_slope_2 = (double)(x2 - x0) / Math.abs(y2 - y0);
+                        e0 += e0StepX;
+                        e1 += e1StepX;
+                        e2 += e2StepX;
 
-        if (y1 - y0 != 0) {
-            for (int y = y0; y <= y1; y++) {
-                int x_start = (int) (x1 + (y - y1) * inv_slope_1);
-                int x_end = (int) (x0 + (y - y0) * inv_slope_2);
+                        reciprocalW += reciprocalWStepX;
+                        uOverW += uOverWStepX;
+                        vOverW += vOverWStepX;
 
-                if (x_end < x_start) {
-                    x_end = Swap.intSwap(x_start, x_start=x_end);
+                        index++;
+                    }
+
+                    rowE0 += e0StepY;
+                    rowE1 += e1StepY;
+                    rowE2 += e2StepY;
                 }
 
-                for (int x = x_start; x <= x_end; x++) {
-                    drawTexel(x, y, texture,
-                            point_a, point_b, point_c,
-                            a_uv, b_uv, c_uv
-                    );
+                if (blockWritten) {
+                    hiZDirty[blockRow * hiZColumns + blockColumn] = true;
+                    hiZCoverage[blockRow * hiZColumns + blockColumn] += blockCoverage;
                 }
             }
         }
 
-        // Flat top part
-        inv_slope_1 = 0;
-        inv_slope_2 = 0;
-
-        if (y2 - y1 != 0) inv_slope_1 = (float)(x2 - x1) / Math.abs(y2 - y1);
-        if (y2 - y0 != 0) inv_slope_2 = (float)(x2 - x0) / Math.abs(y2 - y0);
-
-        if (y2 - y1 != 0) {
-            for (int y = y1; y <= y2; y++) {
-                int x_start = (int) (x1 + (y - y1) * inv_slope_1);
-                int x_end = (int) (x0 + (y - y0) * inv_slope_2);
-
-                if (x_end < x_start) {
-                    x_end = Swap.intSwap(x_start, x_start=x_end);
-                }
+        statistics.recordTriangle(occludedBlocks, shadedPixels, depthRejectedPixels);
+    }
 
-                for (int x = x_start; x <= x_end; x++) {
-                    drawTexel(x, y, texture,
-                            point_a, point_b, point_c,
-                            a_uv, b_uv, c_uv
-                    );
+    // A triangle is hidden when even its nearest depth is behind everything already stored in the blocks it covers
+    private boolean isOccluded(double nearestDepth, int firstBlockColumn, int firstBlockRow, int lastBlockColumn, int lastBlockRow) {
+        for (int blockRow = firstBlockRow; blockRow <= lastBlockRow; blockRow++) {
+            for (int blockColumn = firstBlockColumn; blockColumn <= lastBlockColumn; blockColumn++) {
+                if (nearestDepth < getHiZ(blockColumn, blockRow)) {
+                    return false;
                 }
             }
         }
+
+        return true;
     }
 
     public void setRenderMethod(ERenderMethod renderMethod) {
@@ -465,6 +608,34 @@ public class Display {
         this.cullMethod = cullMethod;
     }
 
+    public void setSortMethod(ESortMethod sortMethod) {
+        this.sortMethod = sortMethod;
+    }
+
+    public void setClipMethod(EClipMethod clipMethod) {
+        this.clipMethod = clipMethod;
+    }
+
+    public void setClipSpace(EClipSpace clipSpace) {
+        this.clipSpace = clipSpace;
+    }
+
+    public void setClearMethod(EClearMethod clearMethod) {
+        this.clearMethod = clearMethod;
+    }
+
+    public void setPipelineMethod(EPipelineMethod pipelineMethod) {
+        this.pipelineMethod = pipelineMethod;
+    }
+
+    public void setTextureFilterMethod(ETextureFilterMethod textureFilterMethod) {
+        this.textureFilterMethod = textureFilterMethod;
+    }
+
+    public void setTextureLayout(ETextureLayout textureLayout) {
+        this.textureLayout = textureLayout;
+    }
+
     public boolean shouldRenderFilledTriangles() {
         return renderMethod == ERenderMethod.RENDER_FILL_TRIANGLE || renderMethod == ERenderMethod.RENDER_FILL_TRIANGLE_WIRE;
     }
@@ -486,6 +657,37 @@ public class Display {
         return renderMethod == ERenderMethod.RENDER_WIRE_VERTEX;
     }
 
+    public boolean shouldSortFrontToBack() {
+        return sortMethod == ESortMethod.SORT_FRONT_TO_BACK;
+    }
+
+    // In guard band mode, triangles only crossing the side planes are left to the rasterizer's screen-space clipping
+    public boolean shouldClipGuardBand() {
+        return clipMethod == EClipMethod.CLIP_GUARD_BAND || clipMethod == EClipMethod.CLIP_GUARD_BAND_NEAR;
+    }
+
+    public boolean shouldClipFarPlane() {
+        return clipMethod != EClipMethod.CLIP_GUARD_BAND_NEAR;
+    }
+
+    public boolean shouldClipInClipSpace() {
+        return clipSpace == EClipSpace.CLIP_HOMOGENEOUS_SPACE;
+    }
+
+    // Building the next frame's geometry while the current one is rasterized shows input one frame later
+    public boolean shouldPipelineFrames() {
+        return pipelineMethod == EPipelineMethod.PIPELINE_GEOMETRY_AHEAD;
+    }
+
+    public boolean shouldUseMipmaps() {
+        return textureFilterMethod == ETextureFilterMethod.FILTER_NEAREST_MIPMAP;
+    }
+
+    // Tiled textures keep the texels a pixel step touches on few cache lines whichever way the texture runs on screen
+    public boolean shouldTileTextures() {
+        return textureLayout == ETextureLayout.LAYOUT_TILED;
+    }
+
     public boolean shouldCullBackfaces() {
         return cullMethod == ECullMethod.CULL_BACKFACE;
     }
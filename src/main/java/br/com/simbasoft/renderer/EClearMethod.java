@@ -0,0 +1,6 @@
+package br.com.simbasoft.renderer;
+
+public enum EClearMethod {
+    CLEAR_FULL,
+    CLEAR_DIRTY_BLOCKS
+}
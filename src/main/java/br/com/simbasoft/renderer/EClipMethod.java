@@ -0,0 +1,7 @@
+package br.com.simbasoft.renderer;
+
+public enum EClipMethod {
+    CLIP_FRUSTUM,
+    CLIP_GUARD_BAND,
+    CLIP_GUARD_BAND_NEAR
+}
@@ -0,0 +1,6 @@
+package br.com.simbasoft.renderer;
+
+public enum EClipSpace {
+    CLIP_CAMERA_SPACE,
+    CLIP_HOMOGENEOUS_SPACE
+}
@@ -0,0 +1,7 @@
+package br.com.simbasoft.renderer;
+
+public enum EFrustumContainment {
+    OUTSIDE_FRUSTUM,
+    INSIDE_FRUSTUM,
+    INTERSECTS_FRUSTUM
+}
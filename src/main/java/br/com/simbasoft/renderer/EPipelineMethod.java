@@ -0,0 +1,6 @@
+package br.com.simbasoft.renderer;
+
+public enum EPipelineMethod {
+    PIPELINE_NONE,
+    PIPELINE_GEOMETRY_AHEAD
+}
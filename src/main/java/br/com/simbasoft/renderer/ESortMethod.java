@@ -0,0 +1,6 @@
+package br.com.simbasoft.renderer;
+
+public enum ESortMethod {
+    SORT_NONE,
+    SORT_FRONT_TO_BACK
+}
@@ -0,0 +1,6 @@
+package br.com.simbasoft.renderer;
+
+public enum ETextureFilterMethod {
+    FILTER_NEAREST,
+    FILTER_NEAREST_MIPMAP
+}
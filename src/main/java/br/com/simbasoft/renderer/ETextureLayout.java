@@ -0,0 +1,6 @@
+package br.com.simbasoft.renderer;
+
+public enum ETextureLayout {
+    LAYOUT_ROW_MAJOR,
+    LAYOUT_TILED
+}
@@ -0,0 +1,262 @@
+package br.com.simbasoft.renderer;
+
+import java.util.Arrays;
+
+// Bounding volume hierarchy over the faces of a large mesh, with a bounding sphere and a cone of face normals per node.
+// A node is culled when its box is outside the frustum or when every face below it points away from the camera.
+// Faces are visited through getFaceOrder(), so the geometry itself is never reordered.
+public class FaceClusters {
+    public static final int MIN_FACE_COUNT = 1024;
+
+    private static final int FACES_PER_CLUSTER = 64;
+
+    // The face normals the renderer computes in camera space may differ slightly from the model-space ones
+    private static final double CONE_EPSILON = 1e-6;
+
+    private final BoundingVolumeHierarchy hierarchy;
+    private final double[] nodeSpheres;
+    private final double[] nodeCones;
+
+    public interface FaceRangeConsumer {
+        void accept(int firstFace, int lastFace, boolean needsClipping);
+    }
+
+    public FaceClusters(MeshGeometry geometry) {
+        int faceCount = geometry.getFaceCount();
+        double[] positions = geometry.getPositions();
+        int[] indices = geometry.getIndices();
+        double[] faceBounds = new double[faceCount * 6];
+        double[] faceNormals = new double[faceCount * 3];
+
+        for (int face = 0; face < faceCount; face++) {
+            int a = indices[face * 3] * 3;
+            int b = indices[face * 3 + 1] * 3;
+            int c = indices[face * 3 + 2] * 3;
+
+            for (int axis = 0; axis < 3; axis++) {
+                faceBounds[face * 6 + axis] = Math.min(positions[a + axis], Math.min(positions[b + axis], positions[c + axis]));
+                faceBounds[face * 6 + 3 + axis] = Math.max(positions[a + axis], Math.max(positions[b + axis], positions[c + axis]));
+            }
+
+            computeFaceNormal(positions, a, b, c, faceNormals, face * 3);
+        }
+
+        this.hierarchy = new BoundingVolumeHierarchy(faceBounds, faceCount, FACES_PER_CLUSTER);
+        this.nodeSpheres = new double[hierarchy.getNodeCount() * 4];
+        this.nodeCones = new double[hierarchy.getNodeCount() * 4];
+
+        for (int node = 0; node < hierarchy.getNodeCount(); node++) {
+            computeNodeSphere(node, faceBounds, positions, indices);
+            computeNodeCone(node, faceNormals);
+        }
+    }
+
+    public int[] getFaceOrder() {
+        return hierarchy.getItemOrder();
+    }
+
+    // Reports the visible runs of getFaceOrder() in order, merging adjacent runs.
+    // A run needs clipping when its box crosses a frustum plane; with isTestingFrustum false the mesh is known to be inside.
+    // Backfacing clusters can only be found when the world-view matrix is a rotation and a uniform positive scale.
+    public void cull(Matrix4 worldViewMatrix, double scale, Clipping clipping, boolean isTestingFrustum, boolean isCullingBackfaces, FaceRangeConsumer consumer) {
+        double[] corners = new double[8 * 3];
+        double[] cameraSpace = new double[6];
+        int[] stack = new int[64];
+        int stackSize = 0;
+        int pendingFirst = 0;
+        int pendingLast = 0;
+        boolean isPendingClipped = false;
+
+        // Each entry holds the node and, in its lowest bit, whether its parent was already known to be inside the frustum
+        stack[stackSize++] = isTestingFrustum ? 0 : 1;
+
+        while (stackSize > 0) {
+            int entry = stack[--stackSize];
+            int node = entry >> 1;
+            EFrustumContainment containment = (entry & 1) != 0 ? EFrustumContainment.INSIDE_FRUSTUM : EFrustumContainment.INTERSECTS_FRUSTUM;
+
+            if (isCullingBackfaces && isBackfacing(node, worldViewMatrix, scale, cameraSpace)) {
+                continue;
+            }
+
+            if (containment == EFrustumContainment.INTERSECTS_FRUSTUM) {
+                hierarchy.transformNodeCornersInto(node, worldViewMatrix, corners);
+
+                containment = clipping.classifyPoints(corners, 8);
+
+                if (containment == EFrustumContainment.OUTSIDE_FRUSTUM) {
+                    continue;
+                }
+            }
+
+            boolean isInside = containment == EFrustumContainment.INSIDE_FRUSTUM;
+
+            if (!hierarchy.isLeaf(node) && (!isInside || isCullingBackfaces)) {
+                if (stackSize + 2 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+
+                stack[stackSize++] = hierarchy.getRightChild(node) << 1 | (isInside ? 1 : 0);
+                stack[stackSize++] = (node + 1) << 1 | (isInside ? 1 : 0);
+                continue;
+            }
+
+            int first = hierarchy.getFirstItem(node);
+            int last = first + hierarchy.getItemCount(node);
+
+            if (pendingLast == first && pendingLast > pendingFirst && isPendingClipped == !isInside) {
+                pendingLast = last;
+                continue;
+            }
+
+            if (pendingLast > pendingFirst) {
+                consumer.accept(pendingFirst, pendingLast, isPendingClipped);
+            }
+
+            pendingFirst = first;
+            pendingLast = last;
+            isPendingClipped = !isInside;
+        }
+
+        if (pendingLast > pendingFirst) {
+            consumer.accept(pendingFirst, pendingLast, isPendingClipped);
+        }
+    }
+
+    // Every face below the node points away from a camera at the origin when the view ray to any point of its sphere
+    // is within 90 degrees minus the cone's half angle of the cone axis
+    private boolean isBackfacing(int node, Matrix4 worldViewMatrix, double scale, double[] cameraSpace) {
+        double cutoff = nodeCones[node * 4 + 3];
+
+        if (cutoff >= 1) {
+            return false;
+        }
+
+        worldViewMatrix.transformPoint(nodeSpheres[node * 4], nodeSpheres[node * 4 + 1], nodeSpheres[node * 4 + 2], cameraSpace, 0);
+        worldViewMatrix.transformDirection(nodeCones[node * 4], nodeCones[node * 4 + 1], nodeCones[node * 4 + 2], cameraSpace, 3);
+
+        double centerX = cameraSpace[0];
+        double centerY = cameraSpace[1];
+        double centerZ = cameraSpace[2];
+        double distance = Math.sqrt(centerX * centerX + centerY * centerY + centerZ * centerZ);
+        double radius = nodeSpheres[node * 4 + 3] * scale;
+
+        double dot = (centerX * cameraSpace[3] + centerY * cameraSpace[4] + centerZ * cameraSpace[5]) / scale;
+
+        return dot > (cutoff + CONE_EPSILON) * distance + radius;
+    }
+
+    private static void computeFaceNormal(double[] positions, int a, int b, int c, double[] normals, int offset) {
+        double abX = positions[b] - positions[a];
+        double abY = positions[b + 1] - positions[a + 1];
+        double abZ = positions[b + 2] - positions[a + 2];
+        double acX = positions[c] - positions[a];
+        double acY = positions[c + 1] - positions[a + 1];
+        double acZ = positions[c + 2] - positions[a + 2];
+
+        double x = abY * acZ - abZ * acY;
+        double y = abZ * acX - abX * acZ;
+        double z = abX * acY - abY * acX;
+        double length = Math.sqrt(x * x + y * y + z * z);
+
+        // Degenerate faces get no normal, which keeps every cluster containing them from being cone culled
+        if (length == 0) {
+            normals[offset] = Double.NaN;
+            return;
+        }
+
+        normals[offset] = x / length;
+        normals[offset + 1] = y / length;
+        normals[offset + 2] = z / length;
+    }
+
+    private void computeNodeSphere(int node, double[] faceBounds, double[] positions, int[] indices) {
+        int[] faceOrder = hierarchy.getItemOrder();
+        int first = hierarchy.getFirstItem(node);
+        int last = first + hierarchy.getItemCount(node);
+        double[] box = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+
+        for (int i = first; i < last; i++) {
+            int face = faceOrder[i];
+
+            for (int axis = 0; axis < 3; axis++) {
+                box[axis] = Math.min(box[axis], faceBounds[face * 6 + axis]);
+                box[3 + axis] = Math.max(box[3 + axis], faceBounds[face * 6 + 3 + axis]);
+            }
+        }
+
+        double centerX = (box[0] + box[3]) / 2;
+        double centerY = (box[1] + box[4]) / 2;
+        double centerZ = (box[2] + box[5]) / 2;
+        double radiusSquared = 0;
+
+        for (int i = first; i < last; i++) {
+            for (int corner = 0; corner < 3; corner++) {
+                int vertex = indices[faceOrder[i] * 3 + corner] * 3;
+                double dx = positions[vertex] - centerX;
+                double dy = positions[vertex + 1] - centerY;
+                double dz = positions[vertex + 2] - centerZ;
+
+                radiusSquared = Math.max(radiusSquared, dx * dx + dy * dy + dz * dz);
+            }
+        }
+
+        nodeSpheres[node * 4] = centerX;
+        nodeSpheres[node * 4 + 1] = centerY;
+        nodeSpheres[node * 4 + 2] = centerZ;
+        nodeSpheres[node * 4 + 3] = Math.sqrt(radiusSquared);
+    }
+
+    // The axis is the average face normal, and the cutoff the sine of the widest angle between it and a face normal.
+    // A cutoff of 1 marks a cone that can never be culled.
+    private void computeNodeCone(int node, double[] faceNormals) {
+        int[] faceOrder = hierarchy.getItemOrder();
+        int first = hierarchy.getFirstItem(node);
+        int last = first + hierarchy.getItemCount(node);
+        double axisX = 0;
+        double axisY = 0;
+        double axisZ = 0;
+
+        nodeCones[node * 4 + 3] = 1;
+
+        for (int i = first; i < last; i++) {
+            int face = faceOrder[i];
+
+            if (Double.isNaN(faceNormals[face * 3])) {
+                return;
+            }
+
+            axisX += faceNormals[face * 3];
+            axisY += faceNormals[face * 3 + 1];
+            axisZ += faceNormals[face * 3 + 2];
+        }
+
+        double length = Math.sqrt(axisX * axisX + axisY * axisY + axisZ * axisZ);
+
+        if (length == 0) {
+            return;
+        }
+
+        axisX /= length;
+        axisY /= length;
+        axisZ /= length;
+
+        double minimumDot = 1;
+
+        for (int i = first; i < last; i++) {
+            int face = faceOrder[i];
+
+            minimumDot = Math.min(minimumDot, axisX * faceNormals[face * 3] + axisY * faceNormals[face * 3 + 1] + axisZ * faceNormals[face * 3 + 2]);
+        }
+
+        if (minimumDot <= 0) {
+            return;
+        }
+
+        nodeCones[node * 4] = axisX;
+        nodeCones[node * 4 + 1] = axisY;
+        nodeCones[node * 4 + 2] = axisZ;
+        nodeCones[node * 4 + 3] = Math.sqrt(1 - minimumDot * minimumDot);
+    }
+}
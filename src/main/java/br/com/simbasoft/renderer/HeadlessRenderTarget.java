@@ -0,0 +1,89 @@
+package br.com.simbasoft.renderer;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import javax.imageio.ImageIO;
+
+public class HeadlessRenderTarget implements RenderTarget {
+    private final int width;
+    private final int height;
+    private final int[] frame;
+    private final Path outputDirectory;
+    private int frameCount;
+
+    public HeadlessRenderTarget(int width, int height) {
+        this(width, height, null);
+    }
+
+    // When outputDirectory is not null, every presented frame is also written there as a numbered PNG
+    public HeadlessRenderTarget(int width, int height, Path outputDirectory) {
+        this.width = width;
+        this.height = height;
+        this.frame = new int[width * height];
+        this.outputDirectory = outputDirectory;
+        this.frameCount = 0;
+
+        if (outputDirectory != null) {
+            try {
+                Files.createDirectories(outputDirectory);
+            } catch (IOException e) {
+                throw new RuntimeException("Error creating output directory " + outputDirectory, e);
+            }
+        }
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public boolean isInteractive() {
+        return false;
+    }
+
+    @Override
+    public void present(int[] colorBuffer) {
+        System.arraycopy(colorBuffer, 0, frame, 0, frame.length);
+
+        if (outputDirectory != null) {
+            writePng(outputDirectory.resolve(String.format("frame_%05d.png", frameCount)));
+        }
+
+        frameCount++;
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    public int[] getFrame() {
+        return frame;
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    public BufferedImage toBufferedImage() {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, width, height, frame, 0, width);
+
+        return image;
+    }
+
+    public void writePng(Path path) {
+        try {
+            ImageIO.write(toBufferedImage(), "png", path.toFile());
+        } catch (IOException e) {
+            throw new RuntimeException("Error writing frame " + path, e);
+        }
+    }
+}
@@ -5,10 +5,21 @@ import java.io.File;
 import java.io.IOException;
 import javax.imageio.ImageIO;
 
+// Level 0 is the image itself, and every further mip level halves the one before it down to a single texel.
+// Levels are kept row-major; a tiled copy of them, where each 4x4 texel tile is 16 consecutive ints, a 64 byte cache line,
+// is built the first time it is asked for. So are the levels past 0, which only mipmapped sampling reads.
 public class ImageTexture {
+    private static final int TILE_SHIFT = 2;
+    private static final int TILE_MASK = (1 << TILE_SHIFT) - 1;
+
     private final int width;
     private final int height;
     private final int[] meshTexture;
+    private final int[] mipWidths;
+    private final int[] mipHeights;
+    private volatile int[][] mipLevels;
+    private volatile int[] tiledTexture;
+    private volatile int[][] tiledMipLevels;
 
     public ImageTexture(final String filePath) throws IOException {
         BufferedImage image = ImageIO.read(new File(filePath));
@@ -16,6 +27,89 @@ public class ImageTexture {
         height = image.getHeight();
         meshTexture = new int[width * height];
         image.getRGB(0, 0, width, height, meshTexture, 0, width);
+
+        int levelCount = 32 - Integer.numberOfLeadingZeros(Math.max(width, height));
+
+        mipWidths = new int[levelCount];
+        mipHeights = new int[levelCount];
+
+        mipWidths[0] = width;
+        mipHeights[0] = height;
+
+        for (int level = 1; level < levelCount; level++) {
+            mipWidths[level] = Math.max(mipWidths[level - 1] / 2, 1);
+            mipHeights[level] = Math.max(mipHeights[level - 1] / 2, 1);
+        }
+    }
+
+    // Box filter averaging every channel of each 2x2 texel block; a side that is already 1 texel wide is only halved along the other
+    private static int[] downsample(int[] source, int sourceWidth, int sourceHeight, int width, int height) {
+        int[] destination = new int[width * height];
+
+        for (int y = 0; y < height; y++) {
+            int y0 = Math.min(y * 2, sourceHeight - 1);
+            int y1 = Math.min(y * 2 + 1, sourceHeight - 1);
+
+            for (int x = 0; x < width; x++) {
+                int x0 = Math.min(x * 2, sourceWidth - 1);
+                int x1 = Math.min(x * 2 + 1, sourceWidth - 1);
+
+                int a = source[y0 * sourceWidth + x0];
+                int b = source[y0 * sourceWidth + x1];
+                int c = source[y1 * sourceWidth + x0];
+                int d = source[y1 * sourceWidth + x1];
+
+                int color = 0;
+
+                for (int shift = 0; shift < 32; shift += 8) {
+                    int sum = ((a >>> shift) & 0xFF) + ((b >>> shift) & 0xFF) + ((c >>> shift) & 0xFF) + ((d >>> shift) & 0xFF);
+
+                    color |= ((sum + 2) >> 2) << shift;
+                }
+
+                destination[y * width + x] = color;
+            }
+        }
+
+        return destination;
+    }
+
+    // Padding texels of tiles along the right and bottom edges are never sampled and left at 0
+    private static int[] tile(int[] source, int width, int height) {
+        int tileColumns = (width + TILE_MASK) >> TILE_SHIFT;
+        int tileRows = (height + TILE_MASK) >> TILE_SHIFT;
+        int[] destination = new int[(tileColumns * tileRows) << (TILE_SHIFT * 2)];
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                destination[getTiledIndex(x, y, width)] = source[y * width + x];
+            }
+        }
+
+        return destination;
+    }
+
+    public static int getTiledIndex(int x, int y, int width) {
+        int tileColumns = (width + TILE_MASK) >> TILE_SHIFT;
+
+        return (((y >> TILE_SHIFT) * tileColumns + (x >> TILE_SHIFT)) << (TILE_SHIFT * 2)) | ((y & TILE_MASK) << TILE_SHIFT) | (x & TILE_MASK);
+    }
+
+    // Nearest texel at u, v in a level stored row-major or tiled.
+    // Row-major levels wrap with the absolute value and remainder. Tiled levels with power-of-two sides wrap with a mask,
+    // which repeats the texture for negative coordinates instead of mirroring it.
+    public static int sample(int[] texels, int width, int height, boolean isTiled, double u, double v) {
+        int x = (int) (u * width);
+        int y = (int) (v * height);
+
+        if (!isTiled) {
+            return texels[width * (Math.abs(y) % height) + Math.abs(x) % width];
+        }
+
+        x = (width & (width - 1)) == 0 ? x & (width - 1) : Math.abs(x) % width;
+        y = (height & (height - 1)) == 0 ? y & (height - 1) : Math.abs(y) % height;
+
+        return texels[getTiledIndex(x, y, width)];
     }
 
     public int[] getMeshTexture() {
@@ -29,4 +123,108 @@ public class ImageTexture {
     public int getHeight() {
         return height;
     }
+
+    public int getMipLevelCount() {
+        return mipWidths.length;
+    }
+
+    public int[] getMipLevel(int level) {
+        if (level == 0) {
+            return meshTexture;
+        }
+
+        int[][] levels = mipLevels;
+
+        if (levels == null) {
+            levels = createMipLevels();
+        }
+
+        return levels[level];
+    }
+
+    public int[] getTiledMipLevel(int level) {
+        if (level == 0) {
+            int[] tiled = tiledTexture;
+
+            return tiled != null ? tiled : createTiledTexture();
+        }
+
+        int[][] levels = tiledMipLevels;
+
+        if (levels == null) {
+            levels = createTiledMipLevels();
+        }
+
+        return levels[level];
+    }
+
+    // Rasterizer threads may ask for the same levels at the same time, and only the first builds them
+    private synchronized int[][] createMipLevels() {
+        if (mipLevels == null) {
+            int[][] levels = new int[mipWidths.length][];
+
+            levels[0] = meshTexture;
+
+            for (int level = 1; level < levels.length; level++) {
+                levels[level] = downsample(levels[level - 1], mipWidths[level - 1], mipHeights[level - 1], mipWidths[level], mipHeights[level]);
+            }
+
+            mipLevels = levels;
+        }
+
+        return mipLevels;
+    }
+
+    private synchronized int[] createTiledTexture() {
+        if (tiledTexture == null) {
+            tiledTexture = tile(meshTexture, width, height);
+        }
+
+        return tiledTexture;
+    }
+
+    private synchronized int[][] createTiledMipLevels() {
+        if (tiledMipLevels == null) {
+            int[][] sourceLevels = createMipLevels();
+            int[][] levels = new int[sourceLevels.length][];
+
+            levels[0] = createTiledTexture();
+
+            for (int level = 1; level < levels.length; level++) {
+                levels[level] = tile(sourceLevels[level], mipWidths[level], mipHeights[level]);
+            }
+
+            tiledMipLevels = levels;
+        }
+
+        return tiledMipLevels;
+    }
+
+    public int getMipWidth(int level) {
+        return mipWidths[level];
+    }
+
+    public int getMipHeight(int level) {
+        return mipHeights[level];
+    }
+
+    // Includes the mip levels and the tiled copies once they have been built
+    public long getSizeInBytes() {
+        long texels = meshTexture.length;
+        int[][] levels = mipLevels;
+        int[] tiled = tiledTexture;
+        int[][] tiledLevels = tiledMipLevels;
+
+        if (tiled != null) {
+            texels += tiled.length;
+        }
+
+        // Level 0 of both is the array already counted above
+        for (int level = 1; level < mipWidths.length; level++) {
+            texels += levels != null ? levels[level].length : 0;
+            texels += tiledLevels != null ? tiledLevels[level].length : 0;
+        }
+
+        return texels * Integer.BYTES;
+    }
 }
\ No newline at end of file
@@ -1,16 +1,11 @@
 package br.com.simbasoft.renderer;
 
 public class Matrix4 {
-    private double[][] m;
+    // Row-major, element (row, column) is at m[row * 4 + column]
+    private final double[] m;
 
     public Matrix4() {
-        m = new double[4][4];
-
-        for (int i = 0; i < 4; i++) {
-            for (int j = 0; j < 4; j++) {
-                m[i][j] = 0;
-            }
-        }
+        m = new double[16];
     }
 
     public static Matrix4 makePerspective(double fov,
@@ -19,11 +14,11 @@ public class Matrix4 {
                                           double zfar) {
         Matrix4 m = new Matrix4();
 
-        m.m[0][0] = aspect * (1 / Math.tan(fov / 2));
-        m.m[1][1] = 1 / Math.tan(fov / 2);
-        m.m[2][2] = zfar / (zfar - znear);
-        m.m[2][3] = (-zfar * znear) / (zfar - znear);
-        m.m[3][2] = 1.0;
+        m.m[0] = aspect * (1 / Math.tan(fov / 2));
+        m.m[5] = 1 / Math.tan(fov / 2);
+        m.m[10] = zfar / (zfar - znear);
+        m.m[11] = (-zfar * znear) / (zfar - znear);
+        m.m[14] = 1.0;
 
         return m;
     }
@@ -31,10 +26,10 @@ public class Matrix4 {
     public static Matrix4 makeIdentity() {
         Matrix4 m = new Matrix4();
 
-        m.m[0][0] = 1;
-        m.m[1][1] = 1;
-        m.m[2][2] = 1;
-        m.m[3][3] = 1;
+        m.m[0] = 1;
+        m.m[5] = 1;
+        m.m[10] = 1;
+        m.m[15] = 1;
 
         return m;
     }
@@ -42,9 +37,9 @@ public class Matrix4 {
     public static Matrix4 makeScale(double sx, double sy, double sz) {
         Matrix4 m = makeIdentity();
 
-        m.m[0][0] = sx;
-        m.m[1][1] = sy;
-        m.m[2][2] = sz;
+        m.m[0] = sx;
+        m.m[5] = sy;
+        m.m[10] = sz;
 
         return m;
     }
@@ -55,10 +50,10 @@ public class Matrix4 {
 
         Matrix4 m = makeIdentity();
 
-        m.m[1][1] = c;
-        m.m[1][2] = -s;
-        m.m[2][1] = s;
-        m.m[2][2] = c;
+        m.m[5] = c;
+        m.m[6] = -s;
+        m.m[9] = s;
+        m.m[10] = c;
 
         return m;
     }
@@ -69,10 +64,10 @@ public class Matrix4 {
 
         Matrix4 m = makeIdentity();
 
-        m.m[0][0] = c;
-        m.m[0][2] = s;
-        m.m[2][0] = -s;
-        m.m[2][2] = c;
+        m.m[0] = c;
+        m.m[2] = s;
+        m.m[8] = -s;
+        m.m[10] = c;
 
         return m;
     }
@@ -83,10 +78,10 @@ public class Matrix4 {
 
         Matrix4 m = makeIdentity();
 
-        m.m[0][0] = c;
-        m.m[0][1] = -s;
-        m.m[1][0] = s;
-        m.m[1][1] = c;
+        m.m[0] = c;
+        m.m[1] = -s;
+        m.m[4] = s;
+        m.m[5] = c;
 
         return m;
     }
@@ -94,34 +89,83 @@ public class Matrix4 {
     public static Matrix4 makeTranslation(double tx, double ty, double tz) {
         Matrix4 m = makeIdentity();
 
-        m.m[0][3] = tx;
-        m.m[1][3] = ty;
-        m.m[2][3] = tz;
+        m.m[3] = tx;
+        m.m[7] = ty;
+        m.m[11] = tz;
 
         return m;
     }
 
+    public double get(int row, int column) {
+        return m[row * 4 + column];
+    }
+
     public static Matrix4 multiply(Matrix4 a, Matrix4 b) {
         Matrix4 m = new Matrix4();
 
+        multiplyInto(a, b, m);
+
+        return m;
+    }
+
+    // out must be a different instance than a and b
+    public static void multiplyInto(Matrix4 a, Matrix4 b, Matrix4 out) {
+        if (out == a || out == b) {
+            throw new IllegalArgumentException("Matrix product cannot be written into one of its operands.");
+        }
+
         for (int i = 0; i < 4; i++) {
             for (int j = 0; j < 4; j++) {
-                m.m[i][j] = a.m[i][0] * b.m[0][j] + a.m[i][1] * b.m[1][j] + a.m[i][2] * b.m[2][j] + a.m[i][3] * b.m[3][j];
+                out.m[i * 4 + j] = a.m[i * 4] * b.m[j] + a.m[i * 4 + 1] * b.m[4 + j] + a.m[i * 4 + 2] * b.m[8 + j] + a.m[i * 4 + 3] * b.m[12 + j];
             }
         }
-
-        return m;
     }
 
     public static Vector4 multiplyVector4(Matrix4 m, Vector4 v) {
-        return new Vector4(
-            m.m[0][0] * v.getX() + m.m[0][1] * v.getY() + m.m[0][2] * v.getZ() + m.m[0][3] * v.getW(),
-            m.m[1][0] * v.getX() + m.m[1][1] * v.getY() + m.m[1][2] * v.getZ() + m.m[1][3] * v.getW(),
-            m.m[2][0] * v.getX() + m.m[2][1] * v.getY() + m.m[2][2] * v.getZ() + m.m[2][3] * v.getW(),
-            m.m[3][0] * v.getX() + m.m[3][1] * v.getY() + m.m[3][2] * v.getZ() + m.m[3][3] * v.getW()
+        Vector4 out = new Vector4(0, 0, 0, 0);
+
+        transformInto(m, v, out);
+
+        return out;
+    }
+
+    // out may be the same instance as v
+    public static void transformInto(Matrix4 m, Vector4 v, Vector4 out) {
+        double x = v.getX();
+        double y = v.getY();
+        double z = v.getZ();
+        double w = v.getW();
+
+        out.set(
+            m.m[0] * x + m.m[1] * y + m.m[2] * z + m.m[3] * w,
+            m.m[4] * x + m.m[5] * y + m.m[6] * z + m.m[7] * w,
+            m.m[8] * x + m.m[9] * y + m.m[10] * z + m.m[11] * w,
+            m.m[12] * x + m.m[13] * y + m.m[14] * z + m.m[15] * w
         );
     }
 
+    // Same as multiplyVector4 with w = 1, writing x, y and z into destination starting at offset
+    public void transformPoint(double x, double y, double z, double[] destination, int offset) {
+        destination[offset] = m[0] * x + m[1] * y + m[2] * z + m[3] * 1.0;
+        destination[offset + 1] = m[4] * x + m[5] * y + m[6] * z + m[7] * 1.0;
+        destination[offset + 2] = m[8] * x + m[9] * y + m[10] * z + m[11] * 1.0;
+    }
+
+    // Same as multiplyVector4 with w = 1, writing x, y, z and w into destination starting at offset
+    public void transformPointHomogeneous(double x, double y, double z, double[] destination, int offset) {
+        destination[offset] = m[0] * x + m[1] * y + m[2] * z + m[3] * 1.0;
+        destination[offset + 1] = m[4] * x + m[5] * y + m[6] * z + m[7] * 1.0;
+        destination[offset + 2] = m[8] * x + m[9] * y + m[10] * z + m[11] * 1.0;
+        destination[offset + 3] = m[12] * x + m[13] * y + m[14] * z + m[15] * 1.0;
+    }
+
+    // Like transformPoint, but without the translation
+    public void transformDirection(double x, double y, double z, double[] destination, int offset) {
+        destination[offset] = m[0] * x + m[1] * y + m[2] * z;
+        destination[offset + 1] = m[4] * x + m[5] * y + m[6] * z;
+        destination[offset + 2] = m[8] * x + m[9] * y + m[10] * z;
+    }
+
     public static Matrix4 lookAt(Vector3 eye, Vector3 target, Vector3 up) {
         Vector3 z = Vector3.normalize(Vector3.subtract(target, eye));
         Vector3 x = Vector3.normalize(Vector3.cross(up, z));
@@ -129,13 +173,15 @@ public class Matrix4 {
 
         Matrix4 viewMatrix = new Matrix4();
 
-        viewMatrix.m = new double[][] {
-                { x.x(),  x.y(),  x.z(),  -Vector3.dot(x, eye) },
-                { y.x(),  y.y(),  y.z(),  -Vector3.dot(y, eye) },
-                { z.x(),  z.y(),  z.z(),  -Vector3.dot(z, eye) },
-                { 0,         0,         0,         1 }
+        double[] values = {
+                x.x(),  x.y(),  x.z(),  -Vector3.dot(x, eye),
+                y.x(),  y.y(),  y.z(),  -Vector3.dot(y, eye),
+                z.x(),  z.y(),  z.z(),  -Vector3.dot(z, eye),
+                0,         0,         0,         1
         };
 
+        System.arraycopy(values, 0, viewMatrix.m, 0, 16);
+
         return viewMatrix;
     }
 }
@@ -1,117 +1,99 @@
 package br.com.simbasoft.renderer;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.nio.file.Path;
+import java.util.AbstractList;
 import java.util.List;
 
+// Geometry and texture shared by every MeshInstance placed from this mesh
 public class Mesh {
-    private final List<Vector3> vertices;
-    private final List<Face> faces;
-    private final Vector3 scale;
-    private final Vector3 translation;
-    private final Vector3 rotation;
-    private ImageTexture texture;
-
-    public Mesh(String objFileName, String pngFileName, Vector3 scale, Vector3 translation, Vector3 rotation) throws IOException {
-        vertices = new ArrayList<>();
-        faces = new ArrayList<>();
-
-        this.scale = scale;
-        this.translation = translation;
-        this.rotation = rotation;
-
-        this.loadMeshObjData(objFileName);
-        this.loadMeshPngData(pngFileName);
+    private final MeshGeometry geometry;
+    private final ImageTexture texture;
+
+    public Mesh(String objFileName, String pngFileName) throws IOException {
+        this(loadMeshGeometry(objFileName), new ImageTexture(pngFileName));
     }
 
+    public Mesh(MeshGeometry geometry, ImageTexture texture) {
+        this.geometry = geometry;
+        this.texture = texture;
+
+        // Computed up front, so the render workers only ever read the bounds and clusters
+        geometry.getBoundingSphere();
+        geometry.getFaceClusters();
+    }
+
+    public MeshGeometry getGeometry() {
+        return geometry;
+    }
+
+    // Read-only view over the geometry arrays
     public List<Face> getFaces() {
-        return faces;
+        return new AbstractList<>() {
+            @Override
+            public Face get(int index) {
+                return geometry.getFace(index);
+            }
+
+            @Override
+            public int size() {
+                return geometry.getFaceCount();
+            }
+        };
     }
 
+    // Read-only view over the geometry arrays
     public List<Vector3> getVertices() {
-        return vertices;
+        return new AbstractList<>() {
+            @Override
+            public Vector3 get(int index) {
+                return geometry.getVertex(index);
+            }
+
+            @Override
+            public int size() {
+                return geometry.getVertexCount();
+            }
+        };
     }
 
     public void addVertex(Vector3 vertex) {
-        vertices.add(vertex);
+        geometry.addVertex(vertex.x(), vertex.y(), vertex.z());
     }
 
     public void addFace(Face face) {
-        faces.add(face);
+        geometry.addFace(
+                face.a(), face.b(), face.c(),
+                face.auv().u(), face.auv().v(),
+                face.buv().u(), face.buv().v(),
+                face.cuv().u(), face.cuv().v(),
+                face.color()
+        );
     }
 
-    public Vector3 getRotation() {
-        return rotation;
-    }
+    // Reads the binary cache when it is up to date with the OBJ file, otherwise parses the OBJ and regenerates the cache
+    public static MeshGeometry loadMeshGeometry(String objFileName) throws IOException {
+        Path objPath = Path.of(objFileName);
+        MeshGeometry geometry = MeshCache.read(objPath);
 
-    public Vector3 getScale() {
-        return scale;
+        if (geometry == null) {
+            geometry = ObjParser.parse(objPath);
+            MeshCache.write(objPath, geometry);
+        }
+
+        return geometry;
     }
 
-    public Vector3 getTranslation() {
-        return translation;
+    public BoundingBox getBoundingBox() {
+        return geometry.getBoundingBox();
     }
 
-    private void loadMeshPngData(String filePath) throws IOException {
-        this.texture = new ImageTexture(filePath);
+    public BoundingSphere getBoundingSphere() {
+        return geometry.getBoundingSphere();
     }
 
-    private void loadMeshObjData(String filePath) throws IOException {
-        List<Texture> texcoords = new ArrayList<>();
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
-
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(" ");
-
-                switch (parts[0]) {
-                    case "v" -> {
-                        double x = Double.parseDouble(parts[1]);
-                        double y = Double.parseDouble(parts[2]);
-                        double z = Double.parseDouble(parts[3]);
-
-                        this.addVertex(new Vector3(x, y, z));
-                    }
-                    case "vt" -> {
-                        double u = Double.parseDouble(parts[1]);
-                        double v = Double.parseDouble(parts[2]);
-
-                        texcoords.add(new Texture(u, v));
-                    }
-                    case "f" -> {
-                        int[] vertexIndices = new int[3];
-                        int[] textureIndices = new int[3];
-
-                        String[] components1 = parts[1].split("/");
-                        String[] components2 = parts[2].split("/");
-                        String[] components3 = parts[3].split("/");
-
-                        vertexIndices[0] = Integer.parseInt(components1[0]) - 1;
-                        vertexIndices[1] = Integer.parseInt(components2[0]) - 1;
-                        vertexIndices[2] = Integer.parseInt(components3[0]) - 1;
-
-                        textureIndices[0] = Integer.parseInt(components1[1]) - 1;
-                        textureIndices[1] = Integer.parseInt(components2[1]) - 1;
-                        textureIndices[2] = Integer.parseInt(components3[1]) - 1;
-
-                        Face face = new Face(
-                                vertexIndices[0],
-                                vertexIndices[1],
-                                vertexIndices[2],
-                                texcoords.get(textureIndices[0]),
-                                texcoords.get(textureIndices[1]),
-                                texcoords.get(textureIndices[2]),
-                                0xFFFFFFFF
-                        );
-
-                        this.addFace(face);
-                    }
-                }
-            }
-        }
+    public FaceClusters getFaceClusters() {
+        return geometry.getFaceClusters();
     }
 
     public ImageTexture getTexture() {
@@ -0,0 +1,137 @@
+package br.com.simbasoft.renderer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// Binary copy of a mesh's geometry arrays, stored next to its OBJ file.
+// Layout (little endian): magic, version, source size, source mtime, vertex count, face count,
+// then positions, texture coordinates, indices and face colors exactly as MeshGeometry holds them.
+public class MeshCache {
+    public static final String EXTENSION = ".meshcache";
+
+    private static final int MAGIC = 0x48534D53; // "SMSH"
+    // Version 2: faces with more than three corners are fan-triangulated instead of cut down to their first three
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4 + 4;
+
+    public static Path getCachePath(Path sourcePath) {
+        return sourcePath.resolveSibling(sourcePath.getFileName() + EXTENSION);
+    }
+
+    // Returns null when there is no cache for the source file or it is stale or unreadable
+    public static MeshGeometry read(Path sourcePath) {
+        Path cachePath = getCachePath(sourcePath);
+
+        if (!Files.isRegularFile(cachePath)) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(cachePath, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+
+            if (fileSize < HEADER_SIZE) {
+                return null;
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+
+            if (buffer.getLong() != Files.size(sourcePath) || buffer.getLong() != Files.getLastModifiedTime(sourcePath).toMillis()) {
+                return null;
+            }
+
+            int vertexCount = buffer.getInt();
+            int faceCount = buffer.getInt();
+
+            if (vertexCount < 0 || faceCount < 0 || fileSize != getFileSize(vertexCount, faceCount)) {
+                return null;
+            }
+
+            double[] positions = new double[Math.max(vertexCount, 1) * 3];
+            double[] textureCoordinates = new double[Math.max(faceCount, 1) * 6];
+            int[] indices = new int[Math.max(faceCount, 1) * 3];
+            int[] faceColors = new int[Math.max(faceCount, 1)];
+
+            buffer.asDoubleBuffer().get(positions, 0, vertexCount * 3);
+            buffer.position(buffer.position() + vertexCount * 3 * Double.BYTES);
+
+            buffer.asDoubleBuffer().get(textureCoordinates, 0, faceCount * 6);
+            buffer.position(buffer.position() + faceCount * 6 * Double.BYTES);
+
+            buffer.asIntBuffer().get(indices, 0, faceCount * 3);
+            buffer.position(buffer.position() + faceCount * 3 * Integer.BYTES);
+
+            buffer.asIntBuffer().get(faceColors, 0, faceCount);
+
+            return new MeshGeometry(positions, indices, textureCoordinates, faceColors, vertexCount, faceCount);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // Written to a temporary file first, so a concurrent or interrupted write never leaves a partial cache behind
+    public static void write(Path sourcePath, MeshGeometry geometry) {
+        Path cachePath = getCachePath(sourcePath);
+        int vertexCount = geometry.getVertexCount();
+        int faceCount = geometry.getFaceCount();
+
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate((int) getFileSize(vertexCount, faceCount)).order(ByteOrder.LITTLE_ENDIAN);
+
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putLong(Files.size(sourcePath));
+            buffer.putLong(Files.getLastModifiedTime(sourcePath).toMillis());
+            buffer.putInt(vertexCount);
+            buffer.putInt(faceCount);
+
+            buffer.asDoubleBuffer().put(geometry.getPositions(), 0, vertexCount * 3);
+            buffer.position(buffer.position() + vertexCount * 3 * Double.BYTES);
+
+            buffer.asDoubleBuffer().put(geometry.getTextureCoordinates(), 0, faceCount * 6);
+            buffer.position(buffer.position() + faceCount * 6 * Double.BYTES);
+
+            buffer.asIntBuffer().put(geometry.getIndices(), 0, faceCount * 3);
+            buffer.position(buffer.position() + faceCount * 3 * Integer.BYTES);
+
+            buffer.asIntBuffer().put(geometry.getFaceColors(), 0, faceCount);
+            buffer.rewind();
+
+            Path temporaryPath = Files.createTempFile(cachePath.toAbsolutePath().getParent(), cachePath.getFileName().toString(), ".tmp");
+
+            try {
+                try (FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                }
+
+                Files.move(temporaryPath, cachePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporaryPath);
+            }
+        } catch (IOException e) {
+            // The cache is only an optimization; a read-only asset directory just means parsing the OBJ every time
+            System.err.println("Error writing mesh cache " + cachePath + ": " + e.getMessage());
+        }
+    }
+
+    private static long getFileSize(int vertexCount, int faceCount) {
+        return HEADER_SIZE
+                + (long) vertexCount * 3 * Double.BYTES
+                + (long) faceCount * 6 * Double.BYTES
+                + (long) faceCount * 3 * Integer.BYTES
+                + (long) faceCount * Integer.BYTES;
+    }
+}
@@ -0,0 +1,190 @@
+package br.com.simbasoft.renderer;
+
+import java.util.Arrays;
+
+// Vertex positions (x, y, z), face indices (a, b, c) and per-corner texture coordinates (u, v for a, b and c) in flat arrays
+public class MeshGeometry {
+    private double[] positions;
+    private int[] indices;
+    private double[] textureCoordinates;
+    private int[] faceColors;
+    private int vertexCount;
+    private int faceCount;
+    private BoundingBox boundingBox;
+    private BoundingSphere boundingSphere;
+    private FaceClusters faceClusters;
+    private boolean hasFaceClusters;
+
+    public MeshGeometry() {
+        this(64, 64);
+    }
+
+    public MeshGeometry(int vertexCapacity, int faceCapacity) {
+        this.positions = new double[Math.max(vertexCapacity, 1) * 3];
+        this.indices = new int[Math.max(faceCapacity, 1) * 3];
+        this.textureCoordinates = new double[Math.max(faceCapacity, 1) * 6];
+        this.faceColors = new int[Math.max(faceCapacity, 1)];
+    }
+
+    // Takes ownership of the given arrays, which must hold at least vertexCount vertices and faceCount faces
+    public MeshGeometry(double[] positions, int[] indices, double[] textureCoordinates, int[] faceColors, int vertexCount, int faceCount) {
+        this.positions = positions;
+        this.indices = indices;
+        this.textureCoordinates = textureCoordinates;
+        this.faceColors = faceColors;
+        this.vertexCount = vertexCount;
+        this.faceCount = faceCount;
+    }
+
+    public int addVertex(double x, double y, double z) {
+        if (vertexCount * 3 == positions.length) {
+            positions = Arrays.copyOf(positions, positions.length * 2);
+        }
+
+        positions[vertexCount * 3] = x;
+        positions[vertexCount * 3 + 1] = y;
+        positions[vertexCount * 3 + 2] = z;
+
+        boundingBox = null;
+        boundingSphere = null;
+        faceClusters = null;
+        hasFaceClusters = false;
+
+        return vertexCount++;
+    }
+
+    public int addFace(int a, int b, int c, double au, double av, double bu, double bv, double cu, double cv, int color) {
+        if (faceCount == faceColors.length) {
+            indices = Arrays.copyOf(indices, indices.length * 2);
+            textureCoordinates = Arrays.copyOf(textureCoordinates, textureCoordinates.length * 2);
+            faceColors = Arrays.copyOf(faceColors, faceColors.length * 2);
+        }
+
+        indices[faceCount * 3] = a;
+        indices[faceCount * 3 + 1] = b;
+        indices[faceCount * 3 + 2] = c;
+
+        textureCoordinates[faceCount * 6] = au;
+        textureCoordinates[faceCount * 6 + 1] = av;
+        textureCoordinates[faceCount * 6 + 2] = bu;
+        textureCoordinates[faceCount * 6 + 3] = bv;
+        textureCoordinates[faceCount * 6 + 4] = cu;
+        textureCoordinates[faceCount * 6 + 5] = cv;
+
+        faceColors[faceCount] = color;
+
+        faceClusters = null;
+        hasFaceClusters = false;
+
+        return faceCount++;
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    public int getFaceCount() {
+        return faceCount;
+    }
+
+    public double[] getPositions() {
+        return positions;
+    }
+
+    public int[] getIndices() {
+        return indices;
+    }
+
+    public double[] getTextureCoordinates() {
+        return textureCoordinates;
+    }
+
+    public int[] getFaceColors() {
+        return faceColors;
+    }
+
+    public BoundingBox getBoundingBox() {
+        if (boundingBox == null) {
+            computeBounds();
+        }
+
+        return boundingBox;
+    }
+
+    public BoundingSphere getBoundingSphere() {
+        if (boundingSphere == null) {
+            computeBounds();
+        }
+
+        return boundingSphere;
+    }
+
+    // Only meshes with at least FaceClusters.MIN_FACE_COUNT faces are clustered; null for smaller ones
+    public synchronized FaceClusters getFaceClusters() {
+        if (!hasFaceClusters) {
+            faceClusters = faceCount >= FaceClusters.MIN_FACE_COUNT ? new FaceClusters(this) : null;
+            hasFaceClusters = true;
+        }
+
+        return faceClusters;
+    }
+
+    // The sphere is centered on the box, with the radius of the farthest vertex from that center
+    private void computeBounds() {
+        if (vertexCount == 0) {
+            boundingBox = new BoundingBox(new Vector3(0, 0, 0), new Vector3(0, 0, 0));
+            boundingSphere = new BoundingSphere(new Vector3(0, 0, 0), 0);
+            return;
+        }
+
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+
+        for (int i = 0; i < vertexCount * 3; i += 3) {
+            minX = Math.min(minX, positions[i]);
+            minY = Math.min(minY, positions[i + 1]);
+            minZ = Math.min(minZ, positions[i + 2]);
+            maxX = Math.max(maxX, positions[i]);
+            maxY = Math.max(maxY, positions[i + 1]);
+            maxZ = Math.max(maxZ, positions[i + 2]);
+        }
+
+        BoundingBox box = new BoundingBox(new Vector3(minX, minY, minZ), new Vector3(maxX, maxY, maxZ));
+        Vector3 center = box.getCenter();
+        double radiusSquared = 0;
+
+        for (int i = 0; i < vertexCount * 3; i += 3) {
+            double dx = positions[i] - center.x();
+            double dy = positions[i + 1] - center.y();
+            double dz = positions[i + 2] - center.z();
+
+            radiusSquared = Math.max(radiusSquared, dx * dx + dy * dy + dz * dz);
+        }
+
+        boundingBox = box;
+        boundingSphere = new BoundingSphere(center, Math.sqrt(radiusSquared));
+    }
+
+    public long getSizeInBytes() {
+        return (long) positions.length * Double.BYTES
+                + (long) textureCoordinates.length * Double.BYTES
+                + (long) indices.length * Integer.BYTES
+                + (long) faceColors.length * Integer.BYTES;
+    }
+
+    public Vector3 getVertex(int index) {
+        return new Vector3(positions[index * 3], positions[index * 3 + 1], positions[index * 3 + 2]);
+    }
+
+    public Face getFace(int index) {
+        return new Face(
+                indices[index * 3],
+                indices[index * 3 + 1],
+                indices[index * 3 + 2],
+                new Texture(textureCoordinates[index * 6], textureCoordinates[index * 6 + 1]),
+                new Texture(textureCoordinates[index * 6 + 2], textureCoordinates[index * 6 + 3]),
+                new Texture(textureCoordinates[index * 6 + 4], textureCoordinates[index * 6 + 5]),
+                faceColors[index]
+        );
+    }
+}
@@ -0,0 +1,38 @@
+package br.com.simbasoft.renderer;
+
+// One placement of a shared Mesh, with its own transform and camera-space vertices
+public class MeshInstance {
+    private final Mesh mesh;
+    private final Transform transform;
+    private final VertexCache vertexCache;
+
+    public MeshInstance(Mesh mesh, Vector3 scale, Vector3 translation, Vector3 rotation) {
+        this.mesh = mesh;
+        this.transform = new Transform(scale, translation, rotation);
+        this.vertexCache = new VertexCache();
+    }
+
+    public Mesh getMesh() {
+        return mesh;
+    }
+
+    public Transform getTransform() {
+        return transform;
+    }
+
+    public VertexCache getVertexCache() {
+        return vertexCache;
+    }
+
+    public Vector3 getRotation() {
+        return transform.getRotation();
+    }
+
+    public Vector3 getScale() {
+        return transform.getScale();
+    }
+
+    public Vector3 getTranslation() {
+        return transform.getTranslation();
+    }
+}
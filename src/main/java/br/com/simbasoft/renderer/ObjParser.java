@@ -0,0 +1,458 @@
+package br.com.simbasoft.renderer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+// Byte-level Wavefront OBJ reader for v, vt and f lines.
+// The mapped file is split into line-aligned chunks that are tokenized in parallel and then merged in order.
+// Faces may be written as v, v/vt, v//vn or v/vt/vn, with negative (relative) indices, and n-gons are fan triangulated.
+// Anything from a # to the end of the line is a comment.
+public class ObjParser {
+    private static final int CHUNK_SIZE = 128 * 1024;
+
+    // Relative indices can only be resolved once the vertex counts of the previous chunks are known,
+    // so they are stored as chunk-local indices shifted below zero
+    private static final int RELATIVE_INDEX_BIAS = 1 << 30;
+    private static final int NO_INDEX = Integer.MIN_VALUE;
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final Path path;
+    private final ByteBuffer buffer;
+    private final int end;
+    private int position;
+
+    private double[] positions = new double[3 * 256];
+    private int vertexCount;
+    private double[] textureCoordinates = new double[2 * 256];
+    private int textureCoordinateCount;
+
+    // Per triangle: three vertex indices followed by three texture coordinate indices
+    private int[] triangles = new int[6 * 256];
+    private int triangleCount;
+
+    private int[] corners = new int[2 * 8];
+
+    private ObjParser(Path path, ByteBuffer buffer, int start, int end) {
+        this.path = path;
+        this.buffer = buffer;
+        this.position = start;
+        this.end = end;
+    }
+
+    public static MeshGeometry parse(Path path) throws IOException {
+        ByteBuffer buffer;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new RuntimeException("Error parsing OBJ file " + path + ": file is too large");
+            }
+
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        int[] chunkStarts = getChunkStarts(buffer);
+
+        List<ObjParser> chunks = IntStream.range(0, chunkStarts.length - 1)
+                .parallel()
+                .mapToObj(i -> {
+                    ObjParser chunk = new ObjParser(path, buffer, chunkStarts[i], chunkStarts[i + 1]);
+                    chunk.parseLines();
+                    return chunk;
+                })
+                .toList();
+
+        return merge(path, chunks);
+    }
+
+    // Chunk boundaries are moved forward to the next line start, so no line is split between two chunks
+    private static int[] getChunkStarts(ByteBuffer buffer) {
+        int size = buffer.limit();
+        int[] starts = new int[size / CHUNK_SIZE + 2];
+        int count = 0;
+
+        starts[count++] = 0;
+
+        for (int start = CHUNK_SIZE; start < size; start += CHUNK_SIZE) {
+            int lineStart = Math.max(start, starts[count - 1]);
+
+            while (lineStart < size && buffer.get(lineStart - 1) != '\n') {
+                lineStart++;
+            }
+
+            if (lineStart < size && lineStart > starts[count - 1]) {
+                starts[count++] = lineStart;
+            }
+        }
+
+        starts[count++] = size;
+
+        return Arrays.copyOf(starts, count);
+    }
+
+    private static MeshGeometry merge(Path path, List<ObjParser> chunks) {
+        int chunkCount = chunks.size();
+        int[] vertexBases = new int[chunkCount];
+        int[] textureCoordinateBases = new int[chunkCount];
+        int[] faceBases = new int[chunkCount];
+        int vertexCount = 0;
+        int textureCoordinateCount = 0;
+        int faceCount = 0;
+
+        for (int i = 0; i < chunkCount; i++) {
+            ObjParser chunk = chunks.get(i);
+
+            vertexBases[i] = vertexCount;
+            textureCoordinateBases[i] = textureCoordinateCount;
+            faceBases[i] = faceCount;
+
+            vertexCount += chunk.vertexCount;
+            textureCoordinateCount += chunk.textureCoordinateCount;
+            faceCount += chunk.triangleCount;
+        }
+
+        double[] positions = new double[Math.max(vertexCount, 1) * 3];
+        double[] allTextureCoordinates = new double[textureCoordinateCount * 2];
+
+        for (int i = 0; i < chunkCount; i++) {
+            ObjParser chunk = chunks.get(i);
+
+            System.arraycopy(chunk.positions, 0, positions, vertexBases[i] * 3, chunk.vertexCount * 3);
+            System.arraycopy(chunk.textureCoordinates, 0, allTextureCoordinates, textureCoordinateBases[i] * 2, chunk.textureCoordinateCount * 2);
+        }
+
+        int[] indices = new int[Math.max(faceCount, 1) * 3];
+        double[] faceTextureCoordinates = new double[Math.max(faceCount, 1) * 6];
+        int[] faceColors = new int[Math.max(faceCount, 1)];
+        int totalVertexCount = vertexCount;
+        int totalTextureCoordinateCount = textureCoordinateCount;
+
+        Arrays.fill(faceColors, 0xFFFFFFFF);
+
+        IntStream.range(0, chunkCount).parallel().forEach(i -> {
+            ObjParser chunk = chunks.get(i);
+            int[] triangles = chunk.triangles;
+
+            for (int triangle = 0; triangle < chunk.triangleCount; triangle++) {
+                int face = faceBases[i] + triangle;
+
+                for (int corner = 0; corner < 3; corner++) {
+                    int vertex = resolveIndex(triangles[triangle * 6 + corner], vertexBases[i]);
+                    int textureCoordinate = triangles[triangle * 6 + 3 + corner];
+
+                    if (vertex < 0 || vertex >= totalVertexCount) {
+                        throw new RuntimeException("Error parsing OBJ file " + path + ": face references missing vertex " + (vertex + 1));
+                    }
+
+                    indices[face * 3 + corner] = vertex;
+
+                    if (textureCoordinate != NO_INDEX) {
+                        textureCoordinate = resolveIndex(textureCoordinate, textureCoordinateBases[i]);
+
+                        if (textureCoordinate < 0 || textureCoordinate >= totalTextureCoordinateCount) {
+                            throw new RuntimeException("Error parsing OBJ file " + path + ": face references missing texture coordinate " + (textureCoordinate + 1));
+                        }
+
+                        faceTextureCoordinates[face * 6 + corner * 2] = allTextureCoordinates[textureCoordinate * 2];
+                        faceTextureCoordinates[face * 6 + corner * 2 + 1] = allTextureCoordinates[textureCoordinate * 2 + 1];
+                    }
+                }
+            }
+        });
+
+        return new MeshGeometry(positions, indices, faceTextureCoordinates, faceColors, vertexCount, faceCount);
+    }
+
+    private static int resolveIndex(int index, int chunkBase) {
+        return index >= 0 ? index : index + RELATIVE_INDEX_BIAS + chunkBase;
+    }
+
+    private void parseLines() {
+        while (position < end) {
+            skipSpaces();
+
+            if (position >= end) {
+                break;
+            }
+
+            byte first = buffer.get(position);
+            byte second = position + 1 < end ? buffer.get(position + 1) : (byte) '\n';
+
+            if (first == 'v' && isSpace(second)) {
+                position += 2;
+                parseVertex();
+            } else if (first == 'v' && second == 't' && position + 2 < end && isSpace(buffer.get(position + 2))) {
+                position += 3;
+                parseTextureCoordinate();
+            } else if (first == 'f' && isSpace(second)) {
+                position += 2;
+                parseFace();
+            }
+
+            skipLine();
+        }
+    }
+
+    private void parseVertex() {
+        if ((vertexCount + 1) * 3 > positions.length) {
+            positions = Arrays.copyOf(positions, positions.length * 2);
+        }
+
+        positions[vertexCount * 3] = parseDouble();
+        positions[vertexCount * 3 + 1] = parseDouble();
+        positions[vertexCount * 3 + 2] = parseDouble();
+        vertexCount++;
+    }
+
+    // The v coordinate is optional
+    private void parseTextureCoordinate() {
+        if ((textureCoordinateCount + 1) * 2 > textureCoordinates.length) {
+            textureCoordinates = Arrays.copyOf(textureCoordinates, textureCoordinates.length * 2);
+        }
+
+        textureCoordinates[textureCoordinateCount * 2] = parseDouble();
+        skipSpaces();
+        textureCoordinates[textureCoordinateCount * 2 + 1] = isEndOfLine() ? 0 : parseDouble();
+        textureCoordinateCount++;
+    }
+
+    private void parseFace() {
+        int cornerCount = 0;
+
+        while (true) {
+            skipSpaces();
+
+            if (isEndOfLine()) {
+                break;
+            }
+
+            if ((cornerCount + 1) * 2 > corners.length) {
+                corners = Arrays.copyOf(corners, corners.length * 2);
+            }
+
+            int vertex = toStoredIndex(parseInt(), vertexCount);
+            int textureCoordinate = NO_INDEX;
+
+            if (position < end && buffer.get(position) == '/') {
+                position++;
+
+                if (position < end && buffer.get(position) != '/') {
+                    textureCoordinate = toStoredIndex(parseInt(), textureCoordinateCount);
+                }
+
+                // Normals are not used by the renderer
+                if (position < end && buffer.get(position) == '/') {
+                    position++;
+                    parseInt();
+                }
+            }
+
+            corners[cornerCount * 2] = vertex;
+            corners[cornerCount * 2 + 1] = textureCoordinate;
+            cornerCount++;
+        }
+
+        for (int i = 1; i + 1 < cornerCount; i++) {
+            addTriangle(0, i, i + 1);
+        }
+    }
+
+    private void addTriangle(int a, int b, int c) {
+        if ((triangleCount + 1) * 6 > triangles.length) {
+            triangles = Arrays.copyOf(triangles, triangles.length * 2);
+        }
+
+        int offset = triangleCount * 6;
+
+        triangles[offset] = corners[a * 2];
+        triangles[offset + 1] = corners[b * 2];
+        triangles[offset + 2] = corners[c * 2];
+        triangles[offset + 3] = corners[a * 2 + 1];
+        triangles[offset + 4] = corners[b * 2 + 1];
+        triangles[offset + 5] = corners[c * 2 + 1];
+        triangleCount++;
+    }
+
+    // OBJ indices start at 1; negative ones count back from the last element defined so far
+    private int toStoredIndex(int index, int localCount) {
+        if (index > 0) {
+            return index - 1;
+        }
+
+        if (index < 0) {
+            return localCount + index - RELATIVE_INDEX_BIAS;
+        }
+
+        throw error("invalid index 0");
+    }
+
+    private int parseInt() {
+        boolean negative = false;
+        int value = 0;
+        int digits = 0;
+
+        if (position < end && (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+            negative = buffer.get(position) == '-';
+            position++;
+        }
+
+        while (position < end) {
+            int digit = buffer.get(position) - '0';
+
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+
+            value = value * 10 + digit;
+            digits++;
+            position++;
+        }
+
+        if (digits == 0) {
+            throw error("expected an integer");
+        }
+
+        return negative ? -value : value;
+    }
+
+    // Decimal numbers with at most 15 significant digits and a small exponent are exact products of two doubles,
+    // so they are converted directly; anything else falls back to Double.parseDouble
+    private double parseDouble() {
+        skipSpaces();
+
+        int start = position;
+        boolean negative = false;
+        long mantissa = 0;
+        int significantDigits = 0;
+        int digits = 0;
+        int exponent = 0;
+
+        if (position < end && (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+            negative = buffer.get(position) == '-';
+            position++;
+        }
+
+        while (position < end && isDigit(buffer.get(position))) {
+            if (significantDigits < 19) {
+                mantissa = mantissa * 10 + (buffer.get(position) - '0');
+            } else {
+                exponent++;
+            }
+
+            if (mantissa != 0) {
+                significantDigits++;
+            }
+
+            digits++;
+            position++;
+        }
+
+        if (position < end && buffer.get(position) == '.') {
+            position++;
+
+            while (position < end && isDigit(buffer.get(position))) {
+                if (significantDigits < 19) {
+                    mantissa = mantissa * 10 + (buffer.get(position) - '0');
+                    exponent--;
+                }
+
+                if (mantissa != 0) {
+                    significantDigits++;
+                }
+
+                digits++;
+                position++;
+            }
+        }
+
+        if (digits > 0 && position < end && (buffer.get(position) == 'e' || buffer.get(position) == 'E')) {
+            position++;
+
+            if (!isAtInteger()) {
+                return parseDoubleSlow(start);
+            }
+
+            exponent += parseInt();
+        }
+
+        if (digits == 0 || significantDigits > 15 || exponent < -22 || exponent > 22 || !isEndOfToken()) {
+            return parseDoubleSlow(start);
+        }
+
+        double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+
+        return negative ? -value : value;
+    }
+
+    private double parseDoubleSlow(int start) {
+        position = start;
+
+        while (!isEndOfToken()) {
+            position++;
+        }
+
+        byte[] token = new byte[position - start];
+        buffer.get(start, token);
+
+        try {
+            return Double.parseDouble(new String(token, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            throw error("expected a number");
+        }
+    }
+
+    private boolean isAtInteger() {
+        int digitPosition = position;
+
+        if (digitPosition < end && (buffer.get(digitPosition) == '-' || buffer.get(digitPosition) == '+')) {
+            digitPosition++;
+        }
+
+        return digitPosition < end && isDigit(buffer.get(digitPosition));
+    }
+
+    private void skipSpaces() {
+        while (position < end && isSpace(buffer.get(position))) {
+            position++;
+        }
+    }
+
+    private void skipLine() {
+        while (position < end && buffer.get(position) != '\n') {
+            position++;
+        }
+
+        position++;
+    }
+
+    // A comment ends the data of a line
+    private boolean isEndOfLine() {
+        return position >= end || buffer.get(position) == '\n' || buffer.get(position) == '\r' || buffer.get(position) == '#';
+    }
+
+    private boolean isEndOfToken() {
+        return isEndOfLine() || isSpace(buffer.get(position));
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t';
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private RuntimeException error(String message) {
+        return new RuntimeException("Error parsing OBJ file " + path + " at byte " + position + ": " + message);
+    }
+}
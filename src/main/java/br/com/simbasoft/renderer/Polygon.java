@@ -1,33 +1,70 @@
 package br.com.simbasoft.renderer;
 
-import java.util.List;
-
+// A convex polygon being clipped, kept as x, y, z, w positions and u, v texture coordinates in fixed arrays.
+// Each plane a triangle is clipped against adds at most one vertex, so the six frustum planes leave at most nine.
+// A clipping pass writes into the spare arrays, which then swap places with the current ones, so a polygon
+// can be reused for every triangle without allocating.
 public class Polygon {
-    private List<Vector3> vertices;
-    private List<Texture> textureCoordinates;
+    public static final int MAX_VERTICES = 9;
 
-    public List<Vector3> getVertices() {
-        return vertices;
-    }
+    private double[] positions = new double[MAX_VERTICES * 4];
+    private double[] textureCoordinates = new double[MAX_VERTICES * 2];
+    private double[] sparePositions = new double[MAX_VERTICES * 4];
+    private double[] spareTextureCoordinates = new double[MAX_VERTICES * 2];
+    private int vertexCount;
 
-    public static Polygon fromTriangle(Vector3 v0, Vector3 v1, Vector3 v2, Texture t0, Texture t1, Texture t2) {
-        Polygon polygon = new Polygon();
+    // The texture coordinates are read as three u, v pairs starting at textureOffset
+    public void setTriangle(Vector4 v0, Vector4 v1, Vector4 v2, double[] triangleTextureCoordinates, int textureOffset) {
+        setVertex(0, v0);
+        setVertex(1, v1);
+        setVertex(2, v2);
 
-        polygon.setVertices(List.of(v0, v1, v2));
-        polygon.setTextureCoordinates(List.of(t0, t1, t2));
+        System.arraycopy(triangleTextureCoordinates, textureOffset, textureCoordinates, 0, 6);
+
+        vertexCount = 3;
+    }
 
-        return polygon;
+    public void setVertex(int index, Vector4 vertex) {
+        positions[index * 4] = vertex.getX();
+        positions[index * 4 + 1] = vertex.getY();
+        positions[index * 4 + 2] = vertex.getZ();
+        positions[index * 4 + 3] = vertex.getW();
     }
 
-    public void setVertices(List<Vector3> vertices) {
-        this.vertices = vertices;
+    public int getVertexCount() {
+        return vertexCount;
     }
 
-    public List<Texture> getTextureCoordinates() {
+    public double[] getPositions() {
+        return positions;
+    }
+
+    public double[] getTextureCoordinates() {
         return textureCoordinates;
     }
 
-    public void setTextureCoordinates(List<Texture> textureCoordinates) {
-        this.textureCoordinates = textureCoordinates;
+    public double[] getSparePositions() {
+        return sparePositions;
+    }
+
+    public double[] getSpareTextureCoordinates() {
+        return spareTextureCoordinates;
+    }
+
+    // Makes the spare arrays, now holding vertexCount vertices, the current ones
+    public void swapBuffers(int vertexCount) {
+        double[] swapPositions = positions;
+        positions = sparePositions;
+        sparePositions = swapPositions;
+
+        double[] swapTextureCoordinates = textureCoordinates;
+        textureCoordinates = spareTextureCoordinates;
+        spareTextureCoordinates = swapTextureCoordinates;
+
+        this.vertexCount = vertexCount;
+    }
+
+    public void getVertexInto(int index, Vector4 out) {
+        out.set(positions[index * 4], positions[index * 4 + 1], positions[index * 4 + 2], positions[index * 4 + 3]);
     }
 }
@@ -0,0 +1,93 @@
+package br.com.simbasoft.renderer;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Renderer counters, safe to update from the geometry and tile workers
+public class RenderStatistics {
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder objectsCulled = new LongAdder();
+    private final LongAdder objectsUnclipped = new LongAdder();
+    private final LongAdder trianglesClipped = new LongAdder();
+    private final LongAdder trianglesRasterized = new LongAdder();
+    private final LongAdder trianglesOccluded = new LongAdder();
+    private final LongAdder blocksOccluded = new LongAdder();
+    private final LongAdder pixelsShaded = new LongAdder();
+    private final LongAdder pixelsDepthRejected = new LongAdder();
+    private final LongAdder pixelsCleared = new LongAdder();
+
+    public void recordFrame() {
+        frames.increment();
+    }
+
+    public void recordObject(EFrustumContainment containment) {
+        switch (containment) {
+            case OUTSIDE_FRUSTUM -> objectsCulled.increment();
+            case INSIDE_FRUSTUM -> objectsUnclipped.increment();
+        }
+    }
+
+    public void recordClippedTriangle() {
+        trianglesClipped.increment();
+    }
+
+    public void recordOccludedTriangle() {
+        trianglesOccluded.increment();
+    }
+
+    public void recordTriangle(int occludedBlocks, int shadedPixels, int depthRejectedPixels) {
+        trianglesRasterized.increment();
+        blocksOccluded.add(occludedBlocks);
+        pixelsShaded.add(shadedPixels);
+        pixelsDepthRejected.add(depthRejectedPixels);
+    }
+
+    public void recordClearedPixels(long clearedPixels) {
+        pixelsCleared.add(clearedPixels);
+    }
+
+    // Geometry counters are gathered per frame and added once that frame is rasterized, since with pipelining it is built a frame early
+    public void add(RenderStatistics other) {
+        frames.add(other.frames.sum());
+        objectsCulled.add(other.objectsCulled.sum());
+        objectsUnclipped.add(other.objectsUnclipped.sum());
+        trianglesClipped.add(other.trianglesClipped.sum());
+        trianglesRasterized.add(other.trianglesRasterized.sum());
+        trianglesOccluded.add(other.trianglesOccluded.sum());
+        blocksOccluded.add(other.blocksOccluded.sum());
+        pixelsShaded.add(other.pixelsShaded.sum());
+        pixelsDepthRejected.add(other.pixelsDepthRejected.sum());
+        pixelsCleared.add(other.pixelsCleared.sum());
+    }
+
+    public void reset() {
+        frames.reset();
+        objectsCulled.reset();
+        objectsUnclipped.reset();
+        trianglesClipped.reset();
+        trianglesRasterized.reset();
+        trianglesOccluded.reset();
+        blocksOccluded.reset();
+        pixelsShaded.reset();
+        pixelsDepthRejected.reset();
+        pixelsCleared.reset();
+    }
+
+    // Triangles are counted once per tile they are rasterized in
+    @Override
+    public String toString() {
+        long frameCount = Math.max(frames.sum(), 1);
+
+        return String.format(
+                "per frame: %d objects culled, %d drawn without clipping, %d triangles clipped, %d triangles rasterized, %d occluded, %d blocks occluded, %d pixels shaded, %d pixels rejected by depth, %d pixels cleared",
+                objectsCulled.sum() / frameCount,
+                objectsUnclipped.sum() / frameCount,
+                trianglesClipped.sum() / frameCount,
+                trianglesRasterized.sum() / frameCount,
+                trianglesOccluded.sum() / frameCount,
+                blocksOccluded.sum() / frameCount,
+                pixelsShaded.sum() / frameCount,
+                pixelsDepthRejected.sum() / frameCount,
+                pixelsCleared.sum() / frameCount
+        );
+    }
+}
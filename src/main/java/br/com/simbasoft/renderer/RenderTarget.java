@@ -0,0 +1,13 @@
+package br.com.simbasoft.renderer;
+
+public interface RenderTarget {
+    int getWidth();
+
+    int getHeight();
+
+    boolean isInteractive();
+
+    void present(int[] colorBuffer);
+
+    void destroy();
+}
@@ -1,202 +1,463 @@
 package br.com.simbasoft.renderer;
 
-import com.sun.jna.ptr.IntByReference;
 import io.github.libsdl4j.api.event.SDL_Event;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 import static io.github.libsdl4j.api.event.SDL_EventType.*;
 import static io.github.libsdl4j.api.event.SdlEvents.SDL_PollEvent;
 import static io.github.libsdl4j.api.keycode.SDL_Keycode.*;
-import static io.github.libsdl4j.api.mouse.SdlMouse.SDL_GetMouseState;
 import static io.github.libsdl4j.api.mouse.SdlMouse.SDL_SetRelativeMouseMode;
 import static io.github.libsdl4j.api.timer.SdlTimer.SDL_Delay;
 import static io.github.libsdl4j.api.timer.SdlTimer.SDL_GetTicks;
 
 public class RendererMain {
+    private static final int FACES_PER_GEOMETRY_CHUNK = 256;
+    private static final int VERTICES_PER_GEOMETRY_CHUNK = 1024;
+    private static final String USAGE = "usage: RendererMain [--headless <width> <height> <frames> [outputDirectory] [--front-to-back] [--statistics] [--squadron <rows>] "
+            + "[--clip <frustum|guard-band|guard-band-near>] [--homogeneous-clipping] [--dirty-clear] [--pipelined-frames | --serial-frames] [--mipmaps | --no-mipmaps] [--tiled-textures]]";
+
+    private final RenderTarget renderTarget;
     private Display display;
+    private TileRasterizer tileRasterizer;
+    private TriangleSorter triangleSorter;
     private boolean isRunning;
     private Matrix4 projectionMatrix;
-    private List<Mesh> meshes;
+    private AssetLoader assetLoader;
+    private Map<Mesh, List<MeshInstance>> meshInstances;
+    private SceneHierarchy sceneHierarchy;
+    private List<CompletableFuture<MeshInstance>> pendingInstances;
+    private List<MeshFiles> loadedMeshFiles;
+    private CompletableFuture<Mesh> f22Mesh;
+    private CompletableFuture<Mesh> efaMesh;
+    private CompletableFuture<Mesh> f117Mesh;
     private int previousFrameTime;
-    private List<Triangle> trianglesToRender;
+    private ExecutorService geometryExecutor;
+    private FrameGeometry nextFrameGeometry;
     private Light light;
     private Camera camera;
     private Clipping clipping;
+    // Vectors and the clipping polygon used while processing faces, one set per geometry worker thread
+    private final ThreadLocal<GeometryScratch> geometryScratch = ThreadLocal.withInitial(GeometryScratch::new);
+    private final List<GeometryChunk> vertexChunks = new ArrayList<>();
+    private final List<GeometryChunk> faceChunks = new ArrayList<>();
+    private final List<TriangleBuffer> chunkTriangles = new ArrayList<>();
+    // A frame is rasterized from one while the next, when pipelining, is built into the other
+    private final FrameGeometry[] frameGeometries = {
+            new FrameGeometry(new TriangleBuffer(), new RenderStatistics()),
+            new FrameGeometry(new TriangleBuffer(), new RenderStatistics())
+    };
+    private int frameGeometryIndex;
     private double deltaTime;
+    private int frameCount;
+    private boolean isPrintingStatistics;
 
     public RendererMain() throws IOException {
+        this(new SdlRenderTarget());
+    }
+
+    public RendererMain(RenderTarget renderTarget) throws IOException {
+        this.renderTarget = renderTarget;
+
         setup();
+    }
+
+    // maxFrames <= 0 keeps rendering until the user quits
+    public void run(int maxFrames) {
+        // Every headless frame has to show the whole scene, so batch renders wait for all assets first
+        if (!renderTarget.isInteractive()) {
+            pendingInstances.forEach(CompletableFuture::join);
+        }
 
         while (isRunning) {
             processInput();
-            update();
-            render();
+
+            // When pipelining, the geometry of this frame was built while the previous one was rasterized.
+            // Otherwise, and for the first frame, it is built now.
+            FrameGeometry frameGeometry = nextFrameGeometry != null ? nextFrameGeometry : update();
+            nextFrameGeometry = null;
+
+            CompletableFuture<FrameGeometry> nextFrame = null;
+            boolean isLastFrame = maxFrames > 0 && frameCount + 1 >= maxFrames;
+
+            // Input is only handled between frames, so the geometry worker never sees the camera or the settings change under it
+            if (display.shouldPipelineFrames() && isRunning && !isLastFrame) {
+                nextFrame = CompletableFuture.supplyAsync(this::update, geometryExecutor);
+            }
+
+            waitForNextFrame();
+            render(frameGeometry);
+
+            if (nextFrame != null) {
+                nextFrameGeometry = nextFrame.join();
+            }
+
+            if (isPrintingStatistics && frameCount % Display.FPS == 0) {
+                System.out.println(display.getStatistics());
+                display.getStatistics().reset();
+            }
+
+            frameCount++;
+
+            if (maxFrames > 0 && frameCount >= maxFrames) {
+                isRunning = false;
+            }
         }
 
         display.destroyWindow();
+        geometryExecutor.shutdown();
+
+        // Every loadMesh holds a reference on its geometry and texture in the asset cache
+        for (MeshFiles meshFiles : loadedMeshFiles) {
+            assetLoader.releaseMesh(meshFiles.objFileName(), meshFiles.pngFileName());
+        }
+
+        assetLoader.shutdown();
+    }
+
+    private void render(FrameGeometry frameGeometry) {
+        TriangleBuffer triangles = frameGeometry.triangles();
+
+        display.getStatistics().add(frameGeometry.statistics());
+        display.clear();
+
+        // Drawing the nearest triangles first lets the depth tests reject most of the hidden pixels cheaply
+        int[] order = display.shouldSortFrontToBack() ? triangleSorter.sortFrontToBack(triangles) : null;
+
+        tileRasterizer.render(triangles, order);
+
+        display.renderColorBuffer();
+
+        display.getStatistics().recordFrame();
     }
 
-    private void render() {
-        display.clearColorBuffer(0xFF000000);
-        display.clearZBuffer();
+    // Model space -> World space -> Camera space -> Clipping -> Projection -> Image space -> Screen space
+    // In homogeneous clipping mode the vertices are projected before clipping, and clipped against -w <= x, y <= w, 0 <= z <= w.
+    // Faces of an instance that lies entirely inside the frustum skip the clipping stage.
+    // For meshes with face clusters, firstFace and lastFace are positions in the clusters' face order.
+    private void processGraphicsPipelineStages(MeshInstance instance, int firstFace, int lastFace, boolean needsClipping, TriangleBuffer triangles, RenderStatistics statistics) {
+        Mesh mesh = instance.getMesh();
+        VertexCache vertexCache = instance.getVertexCache();
+        int[] faceOrder = mesh.getFaceClusters() != null ? mesh.getFaceClusters().getFaceOrder() : null;
+
+        int[] indices = mesh.getGeometry().getIndices();
+        double[] textureCoordinates = mesh.getGeometry().getTextureCoordinates();
+        int[] faceColors = mesh.getGeometry().getFaceColors();
+
+        GeometryScratch scratch = geometryScratch.get();
+        Vector4[] transformedVertices = scratch.transformedVertices;
+        Vector4[] clipSpaceVertices = scratch.clipSpaceVertices;
+        Vector4 faceNormal = scratch.faceNormal;
+        Vector4 edgeAB = scratch.edgeAB;
+        Vector4 edgeAC = scratch.edgeAC;
+        Vector4 cameraRay = scratch.cameraRay;
+        Vector4 origin = scratch.origin;
+        Vector4 lightDirection = scratch.lightDirection;
+        Vector4 projectedPoint = scratch.projectedPoint;
+        Polygon polygon = scratch.polygon;
+        boolean isInClipSpace = display.shouldClipInClipSpace();
+
+        for (int position = firstFace; position < lastFace; position++) {
+            int i = faceOrder != null ? faceOrder[position] : position;
+
+            vertexCache.getVertexInto(indices[i * 3], transformedVertices[0]);
+            vertexCache.getVertexInto(indices[i * 3 + 1], transformedVertices[1]);
+            vertexCache.getVertexInto(indices[i * 3 + 2], transformedVertices[2]);
+
+            Vector4.triangleNormalInto(transformedVertices[0], transformedVertices[1], transformedVertices[2], edgeAB, edgeAC, faceNormal);
+
+            if (display.shouldCullBackfaces()) {
+                Vector4.subtractInto(origin, transformedVertices[0], cameraRay);
 
-        display.drawGrid(15, 0xFF303030);
+                double dotNormalCamera = Vector4.dot(faceNormal, cameraRay);
 
-        for (Triangle triangle : trianglesToRender) {
-            if (display.shouldRenderFilledTriangles()) {
-                display.drawFilledTriangle(triangle);
+                if (dotNormalCamera < 0) {
+                    continue;
+                }
             }
 
-            if (display.shouldRenderTexturedTriangles()) {
-                display.drawTexturedTriangle(
-                        (int) triangle.points()[0].getX(), (int) triangle.points()[0].getY(), triangle.points()[0].getZ(), triangle.points()[0].getW(), triangle.textureCoordinates()[0].u(), triangle.textureCoordinates()[0].v(),
-                        (int) triangle.points()[1].getX(), (int) triangle.points()[1].getY(), triangle.points()[1].getZ(), triangle.points()[1].getW(), triangle.textureCoordinates()[1].u(), triangle.textureCoordinates()[1].v(),
-                        (int) triangle.points()[2].getX(), (int) triangle.points()[2].getY(), triangle.points()[2].getZ(), triangle.points()[2].getW(), triangle.textureCoordinates()[2].u(), triangle.textureCoordinates()[2].v(),
-                        triangle.texture()
-                );
+            // Normals and lighting stay in camera space, only the clipping and the projection use the clip-space vertices
+            Vector4[] vertices = transformedVertices;
+
+            if (isInClipSpace) {
+                vertexCache.getClipSpaceVertexInto(indices[i * 3], clipSpaceVertices[0]);
+                vertexCache.getClipSpaceVertexInto(indices[i * 3 + 1], clipSpaceVertices[1]);
+                vertexCache.getClipSpaceVertexInto(indices[i * 3 + 2], clipSpaceVertices[2]);
+
+                vertices = clipSpaceVertices;
             }
 
-            if (display.shouldRenderWireframe()) {
-                display.drawTriangle(triangle, 0xFFFFFFFF);
+            int planesToClip = needsClipping ? getPlanesToClip(vertices, isInClipSpace) : 0;
+
+            if (planesToClip < 0) {
+                continue;
             }
 
-            if (display.shouldRenderVertex()) {
-                for (int j = 0; j < 3; j++) {
-                    Vector4 vertex = triangle.points()[j];
-                    display.drawRect((int) (vertex.getX() - 3), (int) (vertex.getY() - 3), 6, 6, 0xFFFF0000);
+            polygon.setTriangle(vertices[0], vertices[1], vertices[2], textureCoordinates, i * 6);
+
+            if (planesToClip != 0) {
+                if (isInClipSpace) {
+                    clipping.clipPolygonInClipSpace(polygon, planesToClip);
+                } else {
+                    clipping.clipPolygon(polygon, planesToClip);
                 }
+
+                statistics.recordClippedTriangle();
             }
-        }
 
-        display.renderColorBuffer();
+            projectPolygon(polygon, isInClipSpace, projectedPoint);
+
+            double lightIntensityFactor = -Vector4.dot(faceNormal, lightDirection);
+
+            int triangleColor = Light.applyIntensity(faceColors[i], lightIntensityFactor);
+
+            // The clipped polygon is split into a fan of triangles around its first vertex
+            for (int fanVertex = 1; fanVertex < polygon.getVertexCount() - 1; fanVertex++) {
+                triangles.addFromPolygon(polygon, 0, fanVertex, fanVertex + 1, triangleColor, mesh.getTexture());
+            }
+        }
     }
 
-    // Model space -> World space -> Camera space -> Clipping -> Projection -> Image space -> Screen space
-    private void processGraphicsPipelineStages(Mesh mesh) {
-        Vector3 target = camera.getLookAtTarget();
+    // Frame pacing runs on the main thread, so a pipelined geometry worker keeps building the next frame during the delay
+    private void waitForNextFrame() {
+        if (renderTarget.isInteractive()) {
+            int timeToWait = Display.FRAME_TARGET_TIME - (SDL_GetTicks() - previousFrameTime);
 
-        Vector3 upDirection = new Vector3(0, 1, 0);
+            if (timeToWait > 0 && timeToWait <= Display.FRAME_TARGET_TIME) {
+                SDL_Delay(timeToWait);
+            }
+
+            deltaTime = (SDL_GetTicks() - previousFrameTime) / 1000.0;
 
-        Matrix4 viewMatrix = Matrix4.lookAt(camera.getPosition(), target, upDirection);
+            previousFrameTime = SDL_GetTicks();
+        } else {
+            deltaTime = 1.0 / Display.FPS;
+        }
+    }
 
-        Matrix4 scaleMatrix = Matrix4.makeScale(mesh.getScale().x(), mesh.getScale().y(), mesh.getScale().z());
-        Matrix4 translationMatrix = Matrix4.makeTranslation(mesh.getTranslation().x(), mesh.getTranslation().y(), mesh.getTranslation().z());
-        Matrix4 rotationMatrixX = Matrix4.makeRotationX(mesh.getRotation().x());
-        Matrix4 rotationMatrixY = Matrix4.makeRotationY(mesh.getRotation().y());
-        Matrix4 rotationMatrixZ = Matrix4.makeRotationZ(mesh.getRotation().z());
+    // Builds the triangles of one frame, on the main thread or on the geometry worker
+    private FrameGeometry update() {
+        FrameGeometry frameGeometry = frameGeometries[frameGeometryIndex];
+        RenderStatistics statistics = frameGeometry.statistics();
 
-        for (int i = 0; i < mesh.getFaces().size(); i++) {
-            Face meshFace = mesh.getFaces().get(i);
+        frameGeometryIndex ^= 1;
+        statistics.reset();
 
-            Vector3[] faceVertices = new Vector3[3];
-            faceVertices[0] = mesh.getVertices().get(meshFace.a());
-            faceVertices[1] = mesh.getVertices().get(meshFace.b());
-            faceVertices[2] = mesh.getVertices().get(meshFace.c());
+        addLoadedInstances();
 
-            Vector4[] transformedVertices = new Vector4[3];
+        Matrix4 viewMatrix = camera.getViewMatrix();
 
-            for (int j = 0; j < 3; j++) {
-                Vector4 transformedVertex = Vector4.fromVector3(faceVertices[j]);
+        vertexChunks.clear();
+        faceChunks.clear();
 
-                Matrix4 worldMatrix = Matrix4.makeIdentity();
+        sceneHierarchy.refit();
+        sceneHierarchy.cull(viewMatrix, clipping);
 
-                worldMatrix = Matrix4.multiply(scaleMatrix, worldMatrix);
-                worldMatrix = Matrix4.multiply(rotationMatrixX, worldMatrix);
-                worldMatrix = Matrix4.multiply(rotationMatrixY, worldMatrix);
-                worldMatrix = Matrix4.multiply(rotationMatrixZ, worldMatrix);
-                worldMatrix = Matrix4.multiply(translationMatrix, worldMatrix);
+        List<MeshInstance> instances = sceneHierarchy.getInstances();
 
-                transformedVertex = Matrix4.multiplyVector4(worldMatrix, transformedVertex);
+        // Instances of a mesh are next to each other in the hierarchy's list, so its shared geometry stays in cache while they are processed
+        for (int index = 0; index < instances.size(); index++) {
+            MeshInstance instance = instances.get(index);
+            Mesh mesh = instance.getMesh();
+            EFrustumContainment containment = sceneHierarchy.getContainment(index);
 
-                transformedVertex = Matrix4.multiplyVector4(viewMatrix, transformedVertex);
+            statistics.recordObject(containment);
 
-                transformedVertices[j] = transformedVertex;
+            // Nothing of an instance outside the frustum is transformed or clipped
+            if (containment == EFrustumContainment.OUTSIDE_FRUSTUM) {
+                continue;
             }
 
-            Vector3 faceNormal = Triangle.getTriangleNormal(transformedVertices);
+            Matrix4 worldViewMatrix = instance.getTransform().getWorldViewMatrix(viewMatrix);
+            Matrix4 clipSpaceProjectionMatrix = display.shouldClipInClipSpace() ? projectionMatrix : null;
+            int vertexCount = mesh.getGeometry().getVertexCount();
+            boolean needsClipping = containment == EFrustumContainment.INTERSECTS_FRUSTUM;
 
-            if (display.shouldCullBackfaces()) {
-                Vector3 cameraRay = Vector3.subtract(new Vector3(0, 0, 0), Vector3.fromVector4(transformedVertices[0]));
+            // Vertices are only transformed again when the instance or the camera moved since the last frame
+            if (!instance.getVertexCache().isValidFor(worldViewMatrix, clipSpaceProjectionMatrix, vertexCount)) {
+                instance.getVertexCache().reset(worldViewMatrix, clipSpaceProjectionMatrix, vertexCount);
 
-                double dotNormalCamera = Vector3.dot(faceNormal, cameraRay);
+                for (int firstVertex = 0; firstVertex < vertexCount; firstVertex += VERTICES_PER_GEOMETRY_CHUNK) {
+                    int lastVertex = Math.min(firstVertex + VERTICES_PER_GEOMETRY_CHUNK, vertexCount);
 
-                if (dotNormalCamera < 0) {
-                    continue;
+                    vertexChunks.add(new GeometryChunk(instance, firstVertex, lastVertex, needsClipping));
                 }
             }
 
-            Polygon polygon = Polygon.fromTriangle(
-                    Vector3.fromVector4(transformedVertices[0]),
-                    Vector3.fromVector4(transformedVertices[1]),
-                    Vector3.fromVector4(transformedVertices[2]),
-                    meshFace.auv(),
-                    meshFace.buv(),
-                    meshFace.cuv()
-            );
-
-            clipping.clipPolygon(polygon);
+            // Clusters of large meshes that are off-screen or face away from the camera are dropped as a whole
+            if (mesh.getFaceClusters() != null) {
+                Transform transform = instance.getTransform();
+
+                mesh.getFaceClusters().cull(
+                        worldViewMatrix,
+                        transform.getMaximumScale(),
+                        clipping,
+                        needsClipping,
+                        display.shouldCullBackfaces() && transform.isUniformlyScaled(),
+                        (firstFace, lastFace, isClipped) -> addFaceChunks(faceChunks, instance, firstFace, lastFace, isClipped)
+                );
+            } else {
+                addFaceChunks(faceChunks, instance, 0, mesh.getGeometry().getFaceCount(), needsClipping);
+            }
+        }
 
-            List<Triangle> trianglesAfterClipping = Triangle.createTrianglesFromPolygon(polygon);
+        vertexChunks.parallelStream()
+                .forEach(chunk -> chunk.instance().getVertexCache().transformVertices(chunk.instance().getMesh().getGeometry(), chunk.start(), chunk.end()));
 
-            for (Triangle triangleAfterClipping : trianglesAfterClipping) {
-                Vector4[] projectedPoints = new Vector4[3];
+        while (chunkTriangles.size() < faceChunks.size()) {
+            chunkTriangles.add(new TriangleBuffer());
+        }
 
-                for (int j = 0; j < 3; j++) {
-                    projectedPoints[j] = Matrix4.multiplyVector4(projectionMatrix, triangleAfterClipping.points()[j]);
+        // Every chunk fills its own buffer, and the buffers are merged in chunk order so the result matches a serial run
+        IntStream.range(0, faceChunks.size()).parallel().forEach(index -> {
+            GeometryChunk chunk = faceChunks.get(index);
+            TriangleBuffer triangles = chunkTriangles.get(index);
 
-                    if (projectedPoints[j].getW() != 0) {
-                        projectedPoints[j].setX(projectedPoints[j].getX() / projectedPoints[j].getW());
-                        projectedPoints[j].setY(projectedPoints[j].getY() / projectedPoints[j].getW());
-                        projectedPoints[j].setZ(projectedPoints[j].getZ() / projectedPoints[j].getW());
-                    }
+            triangles.clear();
+            processGraphicsPipelineStages(chunk.instance(), chunk.start(), chunk.end(), chunk.needsClipping(), triangles, statistics);
+        });
 
-                    projectedPoints[j].setY(projectedPoints[j].getY() * (-1));
+        TriangleBuffer trianglesToRender = frameGeometry.triangles();
 
-                    projectedPoints[j].setX(projectedPoints[j].getX() * (display.getWindowWidth() / 2.0));
-                    projectedPoints[j].setY(projectedPoints[j].getY() * (display.getWindowHeight() / 2.0));
+        trianglesToRender.clear();
 
-                    projectedPoints[j].setX(projectedPoints[j].getX() + (display.getWindowWidth() / 2.0));
-                    projectedPoints[j].setY(projectedPoints[j].getY() + (display.getWindowHeight() / 2.0));
-                }
+        for (int index = 0; index < faceChunks.size(); index++) {
+            trianglesToRender.addAll(chunkTriangles.get(index));
+        }
 
-                double lightIntensityFactor = -Vector3.dot(faceNormal, light.direction());
+        return frameGeometry;
+    }
 
-                int triangleColor = Light.applyIntensity(meshFace.color(), lightIntensityFactor);
+    // Perspective divide and viewport transform of the clipped polygon, done once per vertex rather than once per fan triangle
+    private void projectPolygon(Polygon polygon, boolean isInClipSpace, Vector4 point) {
+        for (int j = 0; j < polygon.getVertexCount(); j++) {
+            polygon.getVertexInto(j, point);
 
-                Triangle triangleToRender = new Triangle(
-                        projectedPoints,
-                        triangleAfterClipping.textureCoordinates(),
-                        triangleColor,
-                        mesh.getTexture()
-                );
+            if (!isInClipSpace) {
+                Matrix4.transformInto(projectionMatrix, point, point);
+            }
 
-                trianglesToRender.add(triangleToRender);
+            // Clipping at the near plane in clip space leaves w at least zNear, so only camera-space points need the check
+            if (isInClipSpace || point.getW() != 0) {
+                point.setX(point.getX() / point.getW());
+                point.setY(point.getY() / point.getW());
+                point.setZ(point.getZ() / point.getW());
             }
+
+            point.setY(point.getY() * (-1));
+
+            point.setX(point.getX() * (display.getWindowWidth() / 2.0));
+            point.setY(point.getY() * (display.getWindowHeight() / 2.0));
+
+            point.setX(point.getX() + (display.getWindowWidth() / 2.0));
+            point.setY(point.getY() + (display.getWindowHeight() / 2.0));
+
+            polygon.setVertex(j, point);
         }
     }
 
-    private void update() {
-        int timeToWait = Display.FRAME_TARGET_TIME - (SDL_GetTicks() - previousFrameTime);
+    // Outcode bits of the planes the triangle has to be clipped against, or -1 when it is entirely outside one of them
+    private int getPlanesToClip(Vector4[] vertices, boolean isInClipSpace) {
+        int outcode0 = computeOutcode(vertices[0], isInClipSpace);
+        int outcode1 = computeOutcode(vertices[1], isInClipSpace);
+        int outcode2 = computeOutcode(vertices[2], isInClipSpace);
 
-        if (timeToWait > 0 && timeToWait <= Display.FRAME_TARGET_TIME) {
-            SDL_Delay(timeToWait);
+        if ((outcode0 & outcode1 & outcode2) != 0) {
+            return -1;
         }
 
-        deltaTime = (SDL_GetTicks() - previousFrameTime) / 1000.0;
+        int planesToClip = outcode0 | outcode1 | outcode2;
 
-        previousFrameTime = SDL_GetTicks();
+        if (planesToClip == 0 || !display.shouldClipGuardBand()) {
+            return planesToClip;
+        }
 
-        trianglesToRender = new ArrayList<>();
+        // Inside the guard band the projected vertices stay small enough for the rasterizer to clip to the screen itself.
+        // Vertices behind the camera are never inside it, so anything crossing the near plane still goes through here.
+        int guardBandOutcode = computeGuardBandOutcode(vertices[0], isInClipSpace)
+                | computeGuardBandOutcode(vertices[1], isInClipSpace)
+                | computeGuardBandOutcode(vertices[2], isInClipSpace);
 
-        for (Mesh mesh : meshes) {
-            processGraphicsPipelineStages(mesh);
+        if (guardBandOutcode != 0) {
+            return planesToClip;
+        }
+
+        return planesToClip & (Clipping.NEAR_PLANE_BIT | (display.shouldClipFarPlane() ? Clipping.FAR_PLANE_BIT : 0));
+    }
+
+    private int computeOutcode(Vector4 vertex, boolean isInClipSpace) {
+        return isInClipSpace
+                ? clipping.computeClipSpaceOutcode(vertex.getX(), vertex.getY(), vertex.getZ(), vertex.getW())
+                : clipping.computeOutcode(vertex.getX(), vertex.getY(), vertex.getZ());
+    }
+
+    private int computeGuardBandOutcode(Vector4 vertex, boolean isInClipSpace) {
+        return isInClipSpace
+                ? clipping.computeClipSpaceGuardBandOutcode(vertex.getX(), vertex.getY(), vertex.getZ(), vertex.getW())
+                : clipping.computeGuardBandOutcode(vertex.getX(), vertex.getY(), vertex.getZ());
+    }
+
+    private void addFaceChunks(List<GeometryChunk> faceChunks, MeshInstance instance, int firstFace, int lastFace, boolean needsClipping) {
+        for (int chunkStart = firstFace; chunkStart < lastFace; chunkStart += FACES_PER_GEOMETRY_CHUNK) {
+            int chunkEnd = Math.min(chunkStart + FACES_PER_GEOMETRY_CHUNK, lastFace);
+
+            faceChunks.add(new GeometryChunk(instance, chunkStart, chunkEnd, needsClipping));
+        }
+    }
+
+    // Instances are added in the order they were declared, as soon as they and every instance before them have loaded
+    // The scene hierarchy is rebuilt whenever instances were added, and only refit when they move
+    private void addLoadedInstances() {
+        boolean isChanged = sceneHierarchy == null;
+
+        while (!pendingInstances.isEmpty() && pendingInstances.get(0).isDone()) {
+            MeshInstance instance = pendingInstances.remove(0).join();
+
+            meshInstances.computeIfAbsent(instance.getMesh(), mesh -> new ArrayList<>()).add(instance);
+            isChanged = true;
+        }
+
+        if (isChanged) {
+            sceneHierarchy = new SceneHierarchy(meshInstances.values().stream().flatMap(List::stream).toList());
+        }
+    }
+
+    private CompletableFuture<Mesh> loadMesh(String objFileName, String pngFileName) {
+        loadedMeshFiles.add(new MeshFiles(objFileName, pngFileName));
+
+        return assetLoader.loadMesh(objFileName, pngFileName);
+    }
+
+    private void addInstance(CompletableFuture<Mesh> mesh, Vector3 scale, Vector3 translation, Vector3 rotation) {
+        pendingInstances.add(mesh.thenApply(loadedMesh -> new MeshInstance(loadedMesh, scale, translation, rotation)));
+    }
+
+    // Lines up rows of three jets behind the ones already on the runway
+    public void addSquadron(int rows) {
+        for (int row = 1; row <= rows; row++) {
+            double z = 9 + row * 4;
+
+            addInstance(efaMesh, new Vector3(1, 1, 1), new Vector3(-2, -1.3, z), new Vector3(0, -Math.PI/2, 0));
+            addInstance(f22Mesh, new Vector3(1, 1, 1), new Vector3(0, -1.3, z), new Vector3(0, -Math.PI/2, 0));
+            addInstance(f117Mesh, new Vector3(1, 1, 1), new Vector3(2, -1.3, z), new Vector3(0, -Math.PI/2, 0));
         }
     }
 
     private void processInput() {
+        if (!renderTarget.isInteractive()) {
+            return;
+        }
+
         SDL_Event event = new SDL_Event();
 
         while (SDL_PollEvent(event) > 0) {
@@ -213,6 +474,25 @@ public class RendererMain {
                         case SDLK_6 -> display.setRenderMethod(ERenderMethod.RENDER_TEXTURED_WIRE);
                         case SDLK_C -> display.setCullMethod(ECullMethod.CULL_BACKFACE);
                         case SDLK_X -> display.setCullMethod(ECullMethod.CULL_NONE);
+                        case SDLK_F -> display.setSortMethod(ESortMethod.SORT_FRONT_TO_BACK);
+                        case SDLK_N -> display.setSortMethod(ESortMethod.SORT_NONE);
+                        case SDLK_K -> display.setClipMethod(EClipMethod.CLIP_FRUSTUM);
+                        case SDLK_G -> display.setClipMethod(EClipMethod.CLIP_GUARD_BAND);
+                        case SDLK_H -> display.setClipMethod(EClipMethod.CLIP_GUARD_BAND_NEAR);
+                        case SDLK_V -> display.setClipSpace(EClipSpace.CLIP_CAMERA_SPACE);
+                        case SDLK_P -> display.setClipSpace(EClipSpace.CLIP_HOMOGENEOUS_SPACE);
+                        case SDLK_B -> display.setClearMethod(EClearMethod.CLEAR_FULL);
+                        case SDLK_M -> display.setClearMethod(EClearMethod.CLEAR_DIRTY_BLOCKS);
+                        case SDLK_L -> display.setPipelineMethod(EPipelineMethod.PIPELINE_NONE);
+                        case SDLK_O -> display.setPipelineMethod(EPipelineMethod.PIPELINE_GEOMETRY_AHEAD);
+                        case SDLK_T -> display.setTextureFilterMethod(ETextureFilterMethod.FILTER_NEAREST);
+                        case SDLK_Y -> display.setTextureFilterMethod(ETextureFilterMethod.FILTER_NEAREST_MIPMAP);
+                        case SDLK_R -> display.setTextureLayout(ETextureLayout.LAYOUT_ROW_MAJOR);
+                        case SDLK_U -> display.setTextureLayout(ETextureLayout.LAYOUT_TILED);
+                        case SDLK_I -> {
+                            isPrintingStatistics = !isPrintingStatistics;
+                            display.getStatistics().reset();
+                        }
                         case SDLK_D -> {
                             Vector3 right = Vector3.cross(camera.getDirection(), new Vector3(0, 1, 0)).normalize();
                             Vector3 newPosition = Vector3.add(camera.getPosition(), Vector3.multiply(right, -5.0 * deltaTime));
@@ -247,11 +527,20 @@ public class RendererMain {
 
     private void setup() throws IOException {
         previousFrameTime = 0;
-        display = new Display();
+        frameCount = 0;
+        display = new Display(renderTarget);
+        tileRasterizer = new TileRasterizer(display, ForkJoinPool.commonPool());
+        triangleSorter = new TriangleSorter();
+        geometryExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "geometry");
+            thread.setDaemon(true);
+            return thread;
+        });
         isRunning = true;
 
         display.setRenderMethod(ERenderMethod.RENDER_TEXTURED);
         display.setCullMethod(ECullMethod.CULL_BACKFACE);
+        display.setBackground(0xFF000000, 15, 0xFF303030);
 
         light = new Light(new Vector3(0, 0, 1));
         camera = new Camera(new Vector3(0, 0, 0), new Vector3(0, 0, 1));
@@ -269,46 +558,152 @@ public class RendererMain {
 
         clipping = new Clipping(fovX, fovY, zNear, zFar);
 
-        meshes = new ArrayList<>();
+        assetLoader = new AssetLoader();
+        meshInstances = new LinkedHashMap<>();
+        pendingInstances = new ArrayList<>();
+        loadedMeshFiles = new ArrayList<>();
+
+        CompletableFuture<Mesh> runwayMesh = loadMesh("src/main/resources/runway.obj", "src/main/resources/runway.png");
+        f22Mesh = loadMesh("src/main/resources/f22.obj", "src/main/resources/f22.png");
+        efaMesh = loadMesh("src/main/resources/efa.obj", "src/main/resources/efa.png");
+        f117Mesh = loadMesh("src/main/resources/f117.obj", "src/main/resources/f117.png");
 
-        meshes.add(new Mesh(
-                        "src/main/resources/runway.obj",
-                        "src/main/resources/runway.png",
-                        new Vector3(1, 1, 1),
-                        new Vector3(0, -1.5, 23),
-                        new Vector3(0, 0, 0)
-                )
+        addInstance(
+                runwayMesh,
+                new Vector3(1, 1, 1),
+                new Vector3(0, -1.5, 23),
+                new Vector3(0, 0, 0)
         );
 
-        meshes.add(new Mesh(
-                "src/main/resources/f22.obj",
-                "src/main/resources/f22.png",
+        addInstance(
+                f22Mesh,
                 new Vector3(1, 1, 1),
                 new Vector3(0, -1.3, 5),
                 new Vector3(0, -Math.PI/2, 0)
-            )
         );
 
-        meshes.add(new Mesh(
-                        "src/main/resources/efa.obj",
-                        "src/main/resources/efa.png",
-                        new Vector3(1, 1, 1),
-                        new Vector3(-2, -1.3, 9),
-                        new Vector3(0, -Math.PI/2, 0)
-                )
+        addInstance(
+                efaMesh,
+                new Vector3(1, 1, 1),
+                new Vector3(-2, -1.3, 9),
+                new Vector3(0, -Math.PI/2, 0)
         );
 
-        meshes.add(new Mesh(
-                        "src/main/resources/f117.obj",
-                        "src/main/resources/f117.png",
-                        new Vector3(1, 1, 1),
-                        new Vector3(2, -1.3, 9),
-                        new Vector3(0, -Math.PI/2, 0)
-                )
+        addInstance(
+                f117Mesh,
+                new Vector3(1, 1, 1),
+                new Vector3(2, -1.3, 9),
+                new Vector3(0, -Math.PI/2, 0)
         );
     }
 
+    private record GeometryChunk(MeshInstance instance, int start, int end, boolean needsClipping) {
+    }
+
+    private record MeshFiles(String objFileName, String pngFileName) {
+    }
+
+    // The triangles of one frame, with the geometry counters gathered while building them
+    private record FrameGeometry(TriangleBuffer triangles, RenderStatistics statistics) {
+    }
+
+    private class GeometryScratch {
+        private final Vector4[] transformedVertices = {new Vector4(0, 0, 0, 1), new Vector4(0, 0, 0, 1), new Vector4(0, 0, 0, 1)};
+        private final Vector4[] clipSpaceVertices = {new Vector4(0, 0, 0, 1), new Vector4(0, 0, 0, 1), new Vector4(0, 0, 0, 1)};
+        private final Vector4 faceNormal = new Vector4(0, 0, 0, 0);
+        private final Vector4 edgeAB = new Vector4(0, 0, 0, 0);
+        private final Vector4 edgeAC = new Vector4(0, 0, 0, 0);
+        private final Vector4 cameraRay = new Vector4(0, 0, 0, 0);
+        private final Vector4 origin = new Vector4(0, 0, 0, 1);
+        private final Vector4 lightDirection = Vector4.fromVector3(light.direction());
+        private final Vector4 projectedPoint = new Vector4(0, 0, 0, 1);
+        private final Polygon polygon = new Polygon();
+    }
+
+    public Display getDisplay() {
+        return display;
+    }
+
+    public void setPrintingStatistics(boolean isPrintingStatistics) {
+        this.isPrintingStatistics = isPrintingStatistics;
+    }
+
+    private static RuntimeException usageError(String message) {
+        return new RuntimeException("Error parsing arguments: " + message + System.lineSeparator() + USAGE);
+    }
+
+    private static String getOptionValue(String[] args, int index) {
+        if (index >= args.length) {
+            throw usageError(args[index - 1] + " needs a value");
+        }
+
+        return args[index];
+    }
+
     public static void main(String[] args) throws IOException {
-        new RendererMain();
+        if (args.length >= 4 && args[0].equals("--headless")) {
+            int width = Integer.parseInt(args[1]);
+            int height = Integer.parseInt(args[2]);
+            int frames = Integer.parseInt(args[3]);
+            Path outputDirectory = null;
+            ESortMethod sortMethod = ESortMethod.SORT_NONE;
+            boolean isPrintingStatistics = false;
+            int squadronRows = 0;
+            EClipMethod clipMethod = EClipMethod.CLIP_FRUSTUM;
+            EClipSpace clipSpace = EClipSpace.CLIP_CAMERA_SPACE;
+            EClearMethod clearMethod = EClearMethod.CLEAR_FULL;
+            EPipelineMethod pipelineMethod = EPipelineMethod.PIPELINE_NONE;
+            ETextureFilterMethod textureFilterMethod = ETextureFilterMethod.FILTER_NEAREST;
+            ETextureLayout textureLayout = ETextureLayout.LAYOUT_ROW_MAJOR;
+
+            for (int i = 4; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--front-to-back" -> sortMethod = ESortMethod.SORT_FRONT_TO_BACK;
+                    case "--statistics" -> isPrintingStatistics = true;
+                    case "--squadron" -> squadronRows = Integer.parseInt(getOptionValue(args, ++i));
+                    case "--clip" -> clipMethod = switch (getOptionValue(args, ++i)) {
+                        case "frustum" -> EClipMethod.CLIP_FRUSTUM;
+                        case "guard-band" -> EClipMethod.CLIP_GUARD_BAND;
+                        case "guard-band-near" -> EClipMethod.CLIP_GUARD_BAND_NEAR;
+                        default -> throw usageError("unknown clip method " + args[i]);
+                    };
+                    case "--homogeneous-clipping" -> clipSpace = EClipSpace.CLIP_HOMOGENEOUS_SPACE;
+                    case "--dirty-clear" -> clearMethod = EClearMethod.CLEAR_DIRTY_BLOCKS;
+                    case "--pipelined-frames" -> pipelineMethod = EPipelineMethod.PIPELINE_GEOMETRY_AHEAD;
+                    case "--serial-frames" -> pipelineMethod = EPipelineMethod.PIPELINE_NONE;
+                    case "--mipmaps" -> textureFilterMethod = ETextureFilterMethod.FILTER_NEAREST_MIPMAP;
+                    case "--no-mipmaps" -> textureFilterMethod = ETextureFilterMethod.FILTER_NEAREST;
+                    case "--tiled-textures" -> textureLayout = ETextureLayout.LAYOUT_TILED;
+                    default -> {
+                        // A misspelled option would otherwise become the output directory
+                        if (args[i].startsWith("--") || outputDirectory != null) {
+                            throw usageError("unexpected argument " + args[i]);
+                        }
+
+                        outputDirectory = Path.of(args[i]);
+                    }
+                }
+            }
+
+            long start = System.nanoTime();
+
+            RendererMain renderer = new RendererMain(new HeadlessRenderTarget(width, height, outputDirectory));
+            renderer.getDisplay().setSortMethod(sortMethod);
+            renderer.getDisplay().setClipMethod(clipMethod);
+            renderer.getDisplay().setClipSpace(clipSpace);
+            renderer.getDisplay().setClearMethod(clearMethod);
+            renderer.getDisplay().setPipelineMethod(pipelineMethod);
+            renderer.getDisplay().setTextureFilterMethod(textureFilterMethod);
+            renderer.getDisplay().setTextureLayout(textureLayout);
+            renderer.setPrintingStatistics(isPrintingStatistics);
+            renderer.addSquadron(squadronRows);
+            renderer.run(frames);
+
+            double elapsedMillis = (System.nanoTime() - start) / 1_000_000.0;
+
+            System.out.printf("Rendered %d frames in %.1f ms (%.1f fps)%n", frames, elapsedMillis, frames * 1000.0 / elapsedMillis);
+        } else {
+            new RendererMain().run(0);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,119 @@
+package br.com.simbasoft.renderer;
+
+import java.util.List;
+
+// The world-space boxes of a fixed set of instances in a bounding volume hierarchy.
+// Boxes of instances whose transform changed are refit before every cull.
+public class SceneHierarchy {
+    private static final int INSTANCES_PER_LEAF = 4;
+
+    private final List<MeshInstance> instances;
+    private final double[] instanceBounds;
+    private final Matrix4[] worldMatrices;
+    private final EFrustumContainment[] containments;
+    private final BoundingVolumeHierarchy hierarchy;
+    private final double[] corners;
+
+    public SceneHierarchy(List<MeshInstance> instances) {
+        this.instances = List.copyOf(instances);
+        this.instanceBounds = new double[instances.size() * 6];
+        this.worldMatrices = new Matrix4[instances.size()];
+        this.containments = new EFrustumContainment[instances.size()];
+        this.corners = new double[8 * 3];
+
+        for (int i = 0; i < instances.size(); i++) {
+            updateInstanceBounds(i);
+        }
+
+        this.hierarchy = new BoundingVolumeHierarchy(instanceBounds, instances.size(), INSTANCES_PER_LEAF);
+    }
+
+    public List<MeshInstance> getInstances() {
+        return instances;
+    }
+
+    public EFrustumContainment getContainment(int index) {
+        return containments[index];
+    }
+
+    // Transforms are compared by world matrix instance, which Transform replaces whenever it changes
+    public void refit() {
+        for (int i = 0; i < instances.size(); i++) {
+            if (instances.get(i).getTransform().getWorldMatrix() != worldMatrices[i]) {
+                updateInstanceBounds(i);
+                hierarchy.refitItem(i, instanceBounds);
+            }
+        }
+    }
+
+    // Whole subtrees inside or outside the frustum are settled with one test; only instances in leaves crossing a plane are tested on their own
+    public void cull(Matrix4 viewMatrix, Clipping clipping) {
+        int[] itemOrder = hierarchy.getItemOrder();
+
+        hierarchy.traverse(new BoundingVolumeHierarchy.NodeVisitor() {
+            @Override
+            public EFrustumContainment classifyNode(int node) {
+                hierarchy.transformNodeCornersInto(node, viewMatrix, corners);
+
+                return clipping.classifyPoints(corners, 8);
+            }
+
+            @Override
+            public void acceptItems(int firstItem, int itemCount, EFrustumContainment containment) {
+                for (int i = firstItem; i < firstItem + itemCount; i++) {
+                    int instance = itemOrder[i];
+
+                    containments[instance] = containment == EFrustumContainment.INTERSECTS_FRUSTUM
+                            ? classifyInstance(instances.get(instance), viewMatrix, clipping)
+                            : containment;
+                }
+            }
+        });
+    }
+
+    // The bounding sphere settles most instances; the tighter box is only checked when the sphere crosses a plane
+    private EFrustumContainment classifyInstance(MeshInstance instance, Matrix4 viewMatrix, Clipping clipping) {
+        Matrix4 worldViewMatrix = instance.getTransform().getWorldViewMatrix(viewMatrix);
+        BoundingSphere sphere = instance.getMesh().getBoundingSphere();
+        Vector3 center = sphere.center();
+
+        worldViewMatrix.transformPoint(center.x(), center.y(), center.z(), corners, 0);
+
+        EFrustumContainment containment = clipping.classifySphere(
+                corners[0],
+                corners[1],
+                corners[2],
+                sphere.radius() * instance.getTransform().getMaximumScale()
+        );
+
+        if (containment != EFrustumContainment.INTERSECTS_FRUSTUM) {
+            return containment;
+        }
+
+        instance.getMesh().getBoundingBox().transformCornersInto(worldViewMatrix, corners);
+
+        return clipping.classifyPoints(corners, 8);
+    }
+
+    private void updateInstanceBounds(int index) {
+        MeshInstance instance = instances.get(index);
+        Matrix4 worldMatrix = instance.getTransform().getWorldMatrix();
+
+        instance.getMesh().getBoundingBox().transformCornersInto(worldMatrix, corners);
+
+        for (int axis = 0; axis < 3; axis++) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+
+            for (int corner = 0; corner < 8; corner++) {
+                min = Math.min(min, corners[corner * 3 + axis]);
+                max = Math.max(max, corners[corner * 3 + axis]);
+            }
+
+            instanceBounds[index * 6 + axis] = min;
+            instanceBounds[index * 6 + 3 + axis] = max;
+        }
+
+        worldMatrices[index] = worldMatrix;
+    }
+}
@@ -0,0 +1,9 @@
+package br.com.simbasoft.renderer;
+
+// Screen-space rectangle, minimum inclusive and maximum exclusive
+public record ScreenRect(int minX, int minY, int maxX, int maxY) {
+
+    public boolean contains(int x, int y) {
+        return x >= minX && y >= minY && x < maxX && y < maxY;
+    }
+}
@@ -0,0 +1,135 @@
+package br.com.simbasoft.renderer;
+
+import com.sun.jna.Pointer;
+import com.sun.jna.ptr.IntByReference;
+import com.sun.jna.ptr.PointerByReference;
+import io.github.libsdl4j.api.render.SDL_Renderer;
+import io.github.libsdl4j.api.render.SDL_Texture;
+import io.github.libsdl4j.api.video.SDL_DisplayMode;
+import io.github.libsdl4j.api.video.SDL_Window;
+
+import static io.github.libsdl4j.api.Sdl.SDL_Init;
+import static io.github.libsdl4j.api.Sdl.SDL_Quit;
+import static io.github.libsdl4j.api.SdlSubSystemConst.SDL_INIT_EVERYTHING;
+import static io.github.libsdl4j.api.mouse.SdlMouse.SDL_SetRelativeMouseMode;
+import static io.github.libsdl4j.api.pixels.SDL_PixelFormatEnum.SDL_PIXELFORMAT_RGB888;
+import static io.github.libsdl4j.api.render.SDL_TextureAccess.SDL_TEXTUREACCESS_STREAMING;
+import static io.github.libsdl4j.api.render.SdlRender.*;
+import static io.github.libsdl4j.api.video.SDL_WindowFlags.*;
+import static io.github.libsdl4j.api.video.SdlVideo.*;
+import static io.github.libsdl4j.api.video.SdlVideoConst.SDL_WINDOWPOS_CENTERED;
+
+public class SdlRenderTarget implements RenderTarget {
+    private SDL_Window window;
+    private int windowWidth;
+    private int windowHeight;
+    private SDL_Renderer renderer;
+    private final SDL_Texture colorBufferTexture;
+    private final PointerByReference lockedPixels;
+    private final IntByReference lockedPitch;
+
+    public SdlRenderTarget() {
+        this.initializeWindow();
+
+        this.colorBufferTexture = SDL_CreateTexture(
+                renderer,
+                SDL_PIXELFORMAT_RGB888,
+                SDL_TEXTUREACCESS_STREAMING,
+                windowWidth,
+                windowHeight
+        );
+
+        if (colorBufferTexture == null) {
+            throw new RuntimeException("Error creating SDL texture.");
+        }
+
+        this.lockedPixels = new PointerByReference();
+        this.lockedPitch = new IntByReference();
+    }
+
+    private void initializeWindow() {
+        if (SDL_Init(SDL_INIT_EVERYTHING) != 0) {
+            throw new RuntimeException("Error initializing SDL.");
+        }
+
+        SDL_DisplayMode displayMode = new SDL_DisplayMode();
+        SDL_GetCurrentDisplayMode(0, displayMode);
+
+        int fullScreenWidth = displayMode.w;
+        int fullScreenHeight = displayMode.h;
+
+        windowWidth = fullScreenWidth / 3;
+        windowHeight = fullScreenHeight / 3;
+
+        window = SDL_CreateWindow(
+                "3drenderer",
+                SDL_WINDOWPOS_CENTERED,
+                SDL_WINDOWPOS_CENTERED,
+                fullScreenWidth,
+                fullScreenHeight,
+                SDL_WINDOW_MAXIMIZED | SDL_WINDOW_RESIZABLE
+        );
+
+        if (window == null) {
+            throw new RuntimeException("Error creating SDL window.");
+        }
+
+        renderer = SDL_CreateRenderer(window, -1, 0);
+
+        if (renderer == null) {
+            throw new RuntimeException("Error creating SDL renderer.");
+        }
+
+        SDL_SetWindowFullscreen(window, SDL_WINDOW_FULLSCREEN);
+        SDL_SetRelativeMouseMode(true);
+    }
+
+    @Override
+    public int getWidth() {
+        return windowWidth;
+    }
+
+    @Override
+    public int getHeight() {
+        return windowHeight;
+    }
+
+    @Override
+    public boolean isInteractive() {
+        return true;
+    }
+
+    // The frame is copied once, straight into the streaming texture's own memory, instead of into a
+    // temporary native buffer that SDL_UpdateTexture would then copy again
+    @Override
+    public void present(int[] colorBuffer) {
+        if (SDL_LockTexture(colorBufferTexture, null, lockedPixels, lockedPitch) != 0) {
+            throw new RuntimeException("Error locking SDL texture.");
+        }
+
+        Pointer pixels = lockedPixels.getValue();
+        int pitch = lockedPitch.getValue();
+
+        // Texture rows may be padded, in which case they are copied one by one
+        if (pitch == windowWidth * 4) {
+            pixels.write(0, colorBuffer, 0, windowWidth * windowHeight);
+        } else {
+            for (int y = 0; y < windowHeight; y++) {
+                pixels.write((long) y * pitch, colorBuffer, y * windowWidth, windowWidth);
+            }
+        }
+
+        SDL_UnlockTexture(colorBufferTexture);
+
+        SDL_RenderCopy(renderer, colorBufferTexture, null, null);
+        SDL_RenderPresent(renderer);
+    }
+
+    @Override
+    public void destroy() {
+        SDL_DestroyTexture(colorBufferTexture);
+        SDL_DestroyRenderer(renderer);
+        SDL_DestroyWindow(window);
+        SDL_Quit();
+    }
+}
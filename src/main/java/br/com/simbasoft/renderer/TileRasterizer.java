@@ -0,0 +1,149 @@
+package br.com.simbasoft.renderer;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class TileRasterizer {
+    public static final int TILE_SIZE = 64;
+
+    // Vertex markers are drawn as 6x6 rects around each vertex, so triangles are binned with this margin
+    private static final int BIN_MARGIN = 4;
+
+    private final Display display;
+    private final ForkJoinPool pool;
+    private final int tileColumns;
+    private final int tileRows;
+    private final ScreenRect[] tiles;
+    private final int[][] bins;
+    private final int[] binSizes;
+
+    public TileRasterizer(Display display, ForkJoinPool pool) {
+        this.display = display;
+        this.pool = pool;
+
+        this.tileColumns = (display.getWindowWidth() + TILE_SIZE - 1) / TILE_SIZE;
+        this.tileRows = (display.getWindowHeight() + TILE_SIZE - 1) / TILE_SIZE;
+
+        this.tiles = new ScreenRect[tileColumns * tileRows];
+        this.bins = new int[tiles.length][16];
+        this.binSizes = new int[tiles.length];
+
+        for (int row = 0; row < tileRows; row++) {
+            for (int column = 0; column < tileColumns; column++) {
+                tiles[row * tileColumns + column] = new ScreenRect(
+                        column * TILE_SIZE,
+                        row * TILE_SIZE,
+                        Math.min((column + 1) * TILE_SIZE, display.getWindowWidth()),
+                        Math.min((row + 1) * TILE_SIZE, display.getWindowHeight())
+                );
+            }
+        }
+    }
+
+    // order lists the triangles in the order they are drawn, or is null to draw them in buffer order
+    public void render(TriangleBuffer triangles, int[] order) {
+        binTriangles(triangles, order);
+
+        pool.invoke(new TileRangeTask(triangles, 0, tiles.length));
+    }
+
+    private void binTriangles(TriangleBuffer triangles, int[] order) {
+        Arrays.fill(binSizes, 0);
+
+        for (int position = 0; position < triangles.size(); position++) {
+            int i = order != null ? order[position] : position;
+
+            int x0 = (int) triangles.getX(i, 0);
+            int y0 = (int) triangles.getY(i, 0);
+            int x1 = (int) triangles.getX(i, 1);
+            int y1 = (int) triangles.getY(i, 1);
+            int x2 = (int) triangles.getX(i, 2);
+            int y2 = (int) triangles.getY(i, 2);
+
+            int minX = Math.min(x0, Math.min(x1, x2)) - BIN_MARGIN;
+            int minY = Math.min(y0, Math.min(y1, y2)) - BIN_MARGIN;
+            int maxX = Math.max(x0, Math.max(x1, x2)) + BIN_MARGIN;
+            int maxY = Math.max(y0, Math.max(y1, y2)) + BIN_MARGIN;
+
+            int firstColumn = Math.max(minX, 0) / TILE_SIZE;
+            int firstRow = Math.max(minY, 0) / TILE_SIZE;
+            int lastColumn = Math.min(maxX / TILE_SIZE, tileColumns - 1);
+            int lastRow = Math.min(maxY / TILE_SIZE, tileRows - 1);
+
+            for (int row = firstRow; row <= lastRow; row++) {
+                for (int column = firstColumn; column <= lastColumn; column++) {
+                    addToBin(row * tileColumns + column, i);
+                }
+            }
+        }
+    }
+
+    private void addToBin(int tile, int triangleIndex) {
+        if (binSizes[tile] == bins[tile].length) {
+            bins[tile] = Arrays.copyOf(bins[tile], bins[tile].length * 2);
+        }
+
+        bins[tile][binSizes[tile]++] = triangleIndex;
+    }
+
+    // Triangles are replayed in drawing order inside every tile, so the result matches a serial rasterization
+    private void renderTile(int tile, TriangleBuffer triangles) {
+        ScreenRect clip = tiles[tile];
+
+        for (int i = 0; i < binSizes[tile]; i++) {
+            int triangle = bins[tile][i];
+
+            if (display.shouldRenderFilledTriangles()) {
+                display.drawFilledTriangle(triangles, triangle, clip);
+            }
+
+            if (display.shouldRenderTexturedTriangles()) {
+                display.drawTexturedTriangle(triangles, triangle, clip);
+            }
+
+            if (display.shouldRenderWireframe()) {
+                display.drawTriangle(triangles, triangle, 0xFFFFFFFF, clip);
+            }
+
+            if (display.shouldRenderVertex()) {
+                for (int corner = 0; corner < 3; corner++) {
+                    display.drawRect((int) (triangles.getX(triangle, corner) - 3), (int) (triangles.getY(triangle, corner) - 3), 6, 6, 0xFFFF0000, clip);
+                }
+            }
+        }
+    }
+
+    private class TileRangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final TriangleBuffer triangles;
+        private final int firstTile;
+        private final int lastTile;
+
+        TileRangeTask(TriangleBuffer triangles, int firstTile, int lastTile) {
+            this.triangles = triangles;
+            this.firstTile = firstTile;
+            this.lastTile = lastTile;
+        }
+
+        @Override
+        protected void compute() {
+            // An empty range, as with a window too small to hold a tile, ends the recursion as well
+            if (lastTile - firstTile <= 1) {
+                for (int tile = firstTile; tile < lastTile; tile++) {
+                    renderTile(tile, triangles);
+                }
+
+                return;
+            }
+
+            int middleTile = (firstTile + lastTile) >>> 1;
+
+            invokeAll(
+                    new TileRangeTask(triangles, firstTile, middleTile),
+                    new TileRangeTask(triangles, middleTile, lastTile)
+            );
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package br.com.simbasoft.renderer;
+
+public class Transform {
+    private Vector3 scale;
+    private Vector3 translation;
+    private Vector3 rotation;
+    private Matrix4 worldMatrix;
+    private Matrix4 worldViewMatrix;
+    private Matrix4 worldViewMatrixSource;
+
+    public Transform(Vector3 scale, Vector3 translation, Vector3 rotation) {
+        this.scale = scale;
+        this.translation = translation;
+        this.rotation = rotation;
+    }
+
+    public Vector3 getScale() {
+        return scale;
+    }
+
+    public Vector3 getTranslation() {
+        return translation;
+    }
+
+    public Vector3 getRotation() {
+        return rotation;
+    }
+
+    public void setScale(Vector3 scale) {
+        this.scale = scale;
+        invalidate();
+    }
+
+    public void setTranslation(Vector3 translation) {
+        this.translation = translation;
+        invalidate();
+    }
+
+    public void setRotation(Vector3 rotation) {
+        this.rotation = rotation;
+        invalidate();
+    }
+
+    // Bounding radii scale by the largest axis, whatever the rotation
+    public double getMaximumScale() {
+        return Math.max(Math.abs(scale.x()), Math.max(Math.abs(scale.y()), Math.abs(scale.z())));
+    }
+
+    // Only then does the world-view matrix keep the angles between normals and view rays
+    public boolean isUniformlyScaled() {
+        return scale.x() > 0 && scale.x() == scale.y() && scale.x() == scale.z();
+    }
+
+    private void invalidate() {
+        worldMatrix = null;
+        worldViewMatrix = null;
+    }
+
+    public Matrix4 getWorldMatrix() {
+        if (worldMatrix == null) {
+            Matrix4 scaleMatrix = Matrix4.makeScale(scale.x(), scale.y(), scale.z());
+            Matrix4 translationMatrix = Matrix4.makeTranslation(translation.x(), translation.y(), translation.z());
+            Matrix4 rotationMatrixX = Matrix4.makeRotationX(rotation.x());
+            Matrix4 rotationMatrixY = Matrix4.makeRotationY(rotation.y());
+            Matrix4 rotationMatrixZ = Matrix4.makeRotationZ(rotation.z());
+
+            Matrix4 matrix = Matrix4.makeIdentity();
+
+            matrix = Matrix4.multiply(scaleMatrix, matrix);
+            matrix = Matrix4.multiply(rotationMatrixX, matrix);
+            matrix = Matrix4.multiply(rotationMatrixY, matrix);
+            matrix = Matrix4.multiply(rotationMatrixZ, matrix);
+            matrix = Matrix4.multiply(translationMatrix, matrix);
+
+            worldMatrix = matrix;
+        }
+
+        return worldMatrix;
+    }
+
+    // Cached until either this transform or the view matrix instance changes
+    public Matrix4 getWorldViewMatrix(Matrix4 viewMatrix) {
+        if (worldViewMatrix == null || worldViewMatrixSource != viewMatrix) {
+            worldViewMatrix = Matrix4.multiply(viewMatrix, getWorldMatrix());
+            worldViewMatrixSource = viewMatrix;
+        }
+
+        return worldViewMatrix;
+    }
+}
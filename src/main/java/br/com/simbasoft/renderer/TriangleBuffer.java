@@ -0,0 +1,98 @@
+package br.com.simbasoft.renderer;
+
+import java.util.Arrays;
+
+// Screen-space triangles in flat arrays indexed by triangle: x, y, z, w and u, v for each of the three corners,
+// plus a color and a texture. Buffers only grow, so one reused from frame to frame stops allocating once it is large enough.
+public class TriangleBuffer {
+    private static final int INITIAL_CAPACITY = 256;
+
+    private double[] positions = new double[INITIAL_CAPACITY * 12];
+    private double[] textureCoordinates = new double[INITIAL_CAPACITY * 6];
+    private int[] colors = new int[INITIAL_CAPACITY];
+    private ImageTexture[] textures = new ImageTexture[INITIAL_CAPACITY];
+    private int size;
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Adds the triangle made of the polygon's current vertices a, b and c
+    public void addFromPolygon(Polygon polygon, int a, int b, int c, int color, ImageTexture texture) {
+        ensureCapacity(size + 1);
+
+        double[] polygonPositions = polygon.getPositions();
+        double[] polygonTextureCoordinates = polygon.getTextureCoordinates();
+
+        System.arraycopy(polygonPositions, a * 4, positions, size * 12, 4);
+        System.arraycopy(polygonPositions, b * 4, positions, size * 12 + 4, 4);
+        System.arraycopy(polygonPositions, c * 4, positions, size * 12 + 8, 4);
+
+        System.arraycopy(polygonTextureCoordinates, a * 2, textureCoordinates, size * 6, 2);
+        System.arraycopy(polygonTextureCoordinates, b * 2, textureCoordinates, size * 6 + 2, 2);
+        System.arraycopy(polygonTextureCoordinates, c * 2, textureCoordinates, size * 6 + 4, 2);
+
+        colors[size] = color;
+        textures[size] = texture;
+        size++;
+    }
+
+    public void addAll(TriangleBuffer other) {
+        ensureCapacity(size + other.size);
+
+        System.arraycopy(other.positions, 0, positions, size * 12, other.size * 12);
+        System.arraycopy(other.textureCoordinates, 0, textureCoordinates, size * 6, other.size * 6);
+        System.arraycopy(other.colors, 0, colors, size, other.size);
+        System.arraycopy(other.textures, 0, textures, size, other.size);
+        size += other.size;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= colors.length) {
+            return;
+        }
+
+        int newCapacity = Math.max(capacity, colors.length * 2);
+
+        positions = Arrays.copyOf(positions, newCapacity * 12);
+        textureCoordinates = Arrays.copyOf(textureCoordinates, newCapacity * 6);
+        colors = Arrays.copyOf(colors, newCapacity);
+        textures = Arrays.copyOf(textures, newCapacity);
+    }
+
+    public double getX(int triangle, int corner) {
+        return positions[triangle * 12 + corner * 4];
+    }
+
+    public double getY(int triangle, int corner) {
+        return positions[triangle * 12 + corner * 4 + 1];
+    }
+
+    public double getZ(int triangle, int corner) {
+        return positions[triangle * 12 + corner * 4 + 2];
+    }
+
+    public double getW(int triangle, int corner) {
+        return positions[triangle * 12 + corner * 4 + 3];
+    }
+
+    public double getU(int triangle, int corner) {
+        return textureCoordinates[triangle * 6 + corner * 2];
+    }
+
+    public double getV(int triangle, int corner) {
+        return textureCoordinates[triangle * 6 + corner * 2 + 1];
+    }
+
+    public int getColor(int triangle) {
+        return colors[triangle];
+    }
+
+    public ImageTexture getTexture(int triangle) {
+        return textures[triangle];
+    }
+}
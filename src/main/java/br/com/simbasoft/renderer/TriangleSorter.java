@@ -0,0 +1,72 @@
+package br.com.simbasoft.renderer;
+
+import java.util.Arrays;
+
+// Stable LSD radix sort of triangles by their nearest view-space depth, reusing its buffers between frames
+public class TriangleSorter {
+    private static final int RADIX_BITS = 11;
+    private static final int RADIX = 1 << RADIX_BITS;
+    private static final int PASSES = 3;
+
+    private final int[] counts = new int[RADIX];
+    private int[] keys = new int[0];
+    private int[] swapKeys = new int[0];
+    private int[] order = new int[0];
+    private int[] swapOrder = new int[0];
+
+    // Returns the triangle indices nearest first; the array is reused by the next call and may be longer than the buffer
+    public int[] sortFrontToBack(TriangleBuffer triangles) {
+        int size = triangles.size();
+
+        if (keys.length < size) {
+            keys = new int[size];
+            swapKeys = new int[size];
+            order = new int[size];
+            swapOrder = new int[size];
+        }
+
+        for (int i = 0; i < size; i++) {
+            // After projection w holds the view-space depth, which is positive for every clipped triangle,
+            // and the bits of positive floats sort in the same order as their values
+            double nearestDepth = Math.min(triangles.getW(i, 0), Math.min(triangles.getW(i, 1), triangles.getW(i, 2)));
+
+            keys[i] = Float.floatToRawIntBits((float) Math.max(nearestDepth, 0));
+            order[i] = i;
+        }
+
+        for (int pass = 0; pass < PASSES; pass++) {
+            int shift = pass * RADIX_BITS;
+
+            Arrays.fill(counts, 0);
+
+            for (int i = 0; i < size; i++) {
+                counts[(keys[i] >>> shift) & (RADIX - 1)]++;
+            }
+
+            int offset = 0;
+
+            for (int digit = 0; digit < RADIX; digit++) {
+                int count = counts[digit];
+                counts[digit] = offset;
+                offset += count;
+            }
+
+            for (int i = 0; i < size; i++) {
+                int destination = counts[(keys[i] >>> shift) & (RADIX - 1)]++;
+
+                swapKeys[destination] = keys[i];
+                swapOrder[destination] = order[i];
+            }
+
+            int[] temporary = keys;
+            keys = swapKeys;
+            swapKeys = temporary;
+
+            temporary = order;
+            order = swapOrder;
+            swapOrder = temporary;
+        }
+
+        return order;
+    }
+}
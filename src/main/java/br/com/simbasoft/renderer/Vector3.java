@@ -63,19 +63,4 @@ public record Vector3(double x, double y, double z) {
     public static double dot(Vector3 a, Vector3 b) {
         return (a.x * b.x) + (a.y * b.y) + (a.z * b.z);
     }
-
-    public static Vector3 barycentricWeights(Vector2 a, Vector2 b, Vector2 c, Vector2 p) {
-        Vector2 ac = Vector2.subtract(c, a);
-        Vector2 ab = Vector2.subtract(b, a);
-        Vector2 pc = Vector2.subtract(c, p);
-        Vector2 pb = Vector2.subtract(b, p);
-        Vector2 ap = Vector2.subtract(p, a);
-
-        double areaParallelogramABC = (ac.x() * ab.y() - ac.y() * ab.x());
-        double alpha = (pc.x() * pb.y() - pc.y() * pb.x()) / areaParallelogramABC;
-        double beta = (ac.x() * ap.y() - ac.y() * ap.x()) / areaParallelogramABC;
-        double gamma = 1.0 - alpha - beta;
-
-        return new Vector3(alpha, beta, gamma);
-    }
 }
@@ -4,7 +4,7 @@ public class Vector4 {
     private double x;
     private double y;
     private double z;
-    private final double w;
+    private double w;
 
     public Vector4(double x, double y, double z, double w) {
         this.x = x;
@@ -44,4 +44,52 @@ public class Vector4 {
     public void setZ(double z) {
         this.z = z;
     }
+
+    public void setW(double w) {
+        this.w = w;
+    }
+
+    public void set(double x, double y, double z, double w) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.w = w;
+    }
+
+    // The operations below use only x, y and z, so a Vector4 can stand in for a mutable Vector3
+
+    public static void subtractInto(Vector4 a, Vector4 b, Vector4 out) {
+        out.set(a.x - b.x, a.y - b.y, a.z - b.z, 0);
+    }
+
+    public static void crossInto(Vector4 a, Vector4 b, Vector4 out) {
+        out.set(
+                a.y * b.z - a.z * b.y,
+                a.z * b.x - a.x * b.z,
+                a.x * b.y - a.y * b.x,
+                0
+        );
+    }
+
+    public static void normalizeInto(Vector4 v, Vector4 out) {
+        double length = Math.sqrt(v.x * v.x + v.y * v.y + v.z * v.z);
+
+        out.set(v.x / length, v.y / length, v.z / length, 0);
+    }
+
+    public static double dot(Vector4 a, Vector4 b) {
+        return (a.x * b.x) + (a.y * b.y) + (a.z * b.z);
+    }
+
+    // ab and ac are only used as scratch space
+    public static void triangleNormalInto(Vector4 a, Vector4 b, Vector4 c, Vector4 ab, Vector4 ac, Vector4 normal) {
+        subtractInto(b, a, ab);
+        normalizeInto(ab, ab);
+
+        subtractInto(c, a, ac);
+        normalizeInto(ac, ac);
+
+        crossInto(ab, ac, normal);
+        normalizeInto(normal, normal);
+    }
 }
@@ -0,0 +1,57 @@
+package br.com.simbasoft.renderer;
+
+// Camera-space position of every mesh vertex, stored as x, y, z triples indexed by vertex id.
+// When given a projection matrix, the cache also keeps every vertex in homogeneous clip space as x, y, z, w.
+public class VertexCache {
+    private double[] positions;
+    private double[] clipSpacePositions;
+    private Matrix4 worldViewMatrix;
+    private Matrix4 projectionMatrix;
+
+    public VertexCache() {
+        this.positions = new double[0];
+        this.clipSpacePositions = new double[0];
+    }
+
+    // Vertices added to the geometry after the last transform also make the cache stale.
+    // projectionMatrix is null when clip-space positions are not needed.
+    public boolean isValidFor(Matrix4 worldViewMatrix, Matrix4 projectionMatrix, int vertexCount) {
+        return this.worldViewMatrix == worldViewMatrix && this.projectionMatrix == projectionMatrix && positions.length == vertexCount * 3;
+    }
+
+    public void reset(Matrix4 worldViewMatrix, Matrix4 projectionMatrix, int vertexCount) {
+        if (positions.length != vertexCount * 3) {
+            positions = new double[vertexCount * 3];
+        }
+
+        if (projectionMatrix != null && clipSpacePositions.length != vertexCount * 4) {
+            clipSpacePositions = new double[vertexCount * 4];
+        }
+
+        this.worldViewMatrix = worldViewMatrix;
+        this.projectionMatrix = projectionMatrix;
+    }
+
+    public void transformVertices(MeshGeometry geometry, int firstVertex, int lastVertex) {
+        double[] modelPositions = geometry.getPositions();
+
+        for (int i = firstVertex; i < lastVertex; i++) {
+            worldViewMatrix.transformPoint(modelPositions[i * 3], modelPositions[i * 3 + 1], modelPositions[i * 3 + 2], positions, i * 3);
+        }
+
+        // Projected from the camera-space positions, so an unclipped triangle gets the same screen coordinates in either clipping space
+        if (projectionMatrix != null) {
+            for (int i = firstVertex; i < lastVertex; i++) {
+                projectionMatrix.transformPointHomogeneous(positions[i * 3], positions[i * 3 + 1], positions[i * 3 + 2], clipSpacePositions, i * 4);
+            }
+        }
+    }
+
+    public void getVertexInto(int index, Vector4 out) {
+        out.set(positions[index * 3], positions[index * 3 + 1], positions[index * 3 + 2], 1.0);
+    }
+
+    public void getClipSpaceVertexInto(int index, Vector4 out) {
+        out.set(clipSpacePositions[index * 4], clipSpacePositions[index * 4 + 1], clipSpacePositions[index * 4 + 2], clipSpacePositions[index * 4 + 3]);
+    }
+}
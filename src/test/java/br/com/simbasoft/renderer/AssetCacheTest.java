@@ -0,0 +1,79 @@
+package br.com.simbasoft.renderer;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AssetCacheTest {
+    private static final Path PATH = Path.of("missing.png");
+
+    @Test
+    public void releasesAssetThatFailedToLoad() {
+        AssetCache cache = new AssetCache(AssetCache.DEFAULT_BUDGET_BYTES);
+        AtomicInteger loads = new AtomicInteger();
+
+        CompletableFuture<String> future = cache.acquire(PATH, String.class, () -> {
+            loads.incrementAndGet();
+            return CompletableFuture.failedFuture(new RuntimeException("Error loading " + PATH));
+        }, String::length);
+
+        assertTrue(future.isCompletedExceptionally());
+        assertDoesNotThrow(() -> cache.release(PATH, String.class));
+
+        // Once released, the failed load is forgotten and the next acquire loads again
+        cache.acquire(PATH, String.class, () -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture("texture");
+        }, String::length);
+
+        assertEquals(2, loads.get());
+        assertEquals(7, cache.getSizeInBytes());
+    }
+
+    @Test
+    public void keepsFailedLoadUntilEveryReferenceIsReleased() {
+        AssetCache cache = new AssetCache(AssetCache.DEFAULT_BUDGET_BYTES);
+        CompletableFuture<String> loading = new CompletableFuture<>();
+
+        CompletableFuture<String> first = cache.acquire(PATH, String.class, () -> loading, String::length);
+        CompletableFuture<String> second = cache.acquire(PATH, String.class, () -> CompletableFuture.completedFuture("unused"), String::length);
+
+        assertSame(first, second);
+
+        loading.completeExceptionally(new RuntimeException("Error loading " + PATH));
+
+        assertDoesNotThrow(() -> cache.release(PATH, String.class));
+        assertDoesNotThrow(() -> cache.release(PATH, String.class));
+        assertThrows(IllegalStateException.class, () -> cache.release(PATH, String.class));
+    }
+
+    // An unreferenced asset that grew past the budget after loading is evicted by the next release
+    @Test
+    public void measuresAssetsAgainAfterLoading() {
+        AssetCache cache = new AssetCache(10);
+        Path otherPath = Path.of("other.png");
+        StringBuilder growing = new StringBuilder("12345");
+
+        cache.acquire(PATH, StringBuilder.class, () -> CompletableFuture.completedFuture(growing), StringBuilder::length);
+        cache.acquire(otherPath, StringBuilder.class, () -> CompletableFuture.completedFuture(new StringBuilder("12")), StringBuilder::length);
+        cache.release(PATH, StringBuilder.class);
+
+        assertEquals(7, cache.getSizeInBytes());
+
+        growing.append("67890");
+
+        assertEquals(12, cache.getSizeInBytes());
+
+        cache.release(otherPath, StringBuilder.class);
+
+        assertEquals(2, cache.getSizeInBytes());
+    }
+}
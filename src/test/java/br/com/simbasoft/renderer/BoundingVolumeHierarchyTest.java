@@ -0,0 +1,112 @@
+package br.com.simbasoft.renderer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BoundingVolumeHierarchyTest {
+    private static final int ITEM_COUNT = 100;
+
+    // Unit boxes at random positions, min x, y, z then max x, y, z
+    private final double[] itemBounds = new double[ITEM_COUNT * 6];
+
+    @Test
+    public void reportsEveryItemOnceInItemOrder() {
+        placeItems(new Random(7));
+
+        BoundingVolumeHierarchy hierarchy = new BoundingVolumeHierarchy(itemBounds, ITEM_COUNT, 4);
+        List<Integer> items = new ArrayList<>();
+        int[] nextItem = {0};
+
+        // Descending everywhere ends at the leaves, which must cover the item order as consecutive runs
+        hierarchy.traverse(new BoundingVolumeHierarchy.NodeVisitor() {
+            @Override
+            public EFrustumContainment classifyNode(int node) {
+                return EFrustumContainment.INTERSECTS_FRUSTUM;
+            }
+
+            @Override
+            public void acceptItems(int firstItem, int itemCount, EFrustumContainment containment) {
+                assertEquals(nextItem[0], firstItem);
+                assertTrue(itemCount <= 4);
+
+                for (int i = firstItem; i < firstItem + itemCount; i++) {
+                    items.add(hierarchy.getItemOrder()[i]);
+                }
+
+                nextItem[0] = firstItem + itemCount;
+            }
+        });
+
+        int[] sortedItems = items.stream().mapToInt(Integer::intValue).sorted().toArray();
+        int[] expectedItems = new int[ITEM_COUNT];
+
+        Arrays.setAll(expectedItems, i -> i);
+
+        assertEquals(ITEM_COUNT, items.size());
+        assertArrayEquals(expectedItems, sortedItems);
+    }
+
+    // After an item moves, every box from its leaf up to the root still contains it
+    @Test
+    public void refitGrowsAncestorBoxes() {
+        placeItems(new Random(11));
+
+        BoundingVolumeHierarchy hierarchy = new BoundingVolumeHierarchy(itemBounds, ITEM_COUNT, 4);
+        int movedItem = 42;
+
+        setItem(movedItem, 1000, 50, -30);
+        hierarchy.refitItem(movedItem, itemBounds);
+
+        double[] corners = new double[24];
+        Matrix4 identity = Matrix4.makeIdentity();
+        int containingNodes = 0;
+
+        for (int node = 0; node < hierarchy.getNodeCount(); node++) {
+            int first = hierarchy.getFirstItem(node);
+            boolean holdsItem = false;
+
+            for (int i = first; i < first + hierarchy.getItemCount(node); i++) {
+                holdsItem |= hierarchy.getItemOrder()[i] == movedItem;
+            }
+
+            if (!holdsItem) {
+                continue;
+            }
+
+            hierarchy.transformNodeCornersInto(node, identity, corners);
+
+            // Corner 0 is the minimum and corner 7 the maximum of the box
+            for (int axis = 0; axis < 3; axis++) {
+                assertTrue(corners[axis] <= itemBounds[movedItem * 6 + axis]);
+                assertTrue(corners[21 + axis] >= itemBounds[movedItem * 6 + 3 + axis]);
+            }
+
+            containingNodes++;
+        }
+
+        assertTrue(containingNodes > 1);
+    }
+
+    private void placeItems(Random random) {
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            setItem(i, random.nextDouble() * 200 - 100, random.nextDouble() * 20 - 10, random.nextDouble() * 20 - 10);
+        }
+    }
+
+    private void setItem(int item, double x, double y, double z) {
+        itemBounds[item * 6] = x;
+        itemBounds[item * 6 + 1] = y;
+        itemBounds[item * 6 + 2] = z;
+        itemBounds[item * 6 + 3] = x + 1;
+        itemBounds[item * 6 + 4] = y + 1;
+        itemBounds[item * 6 + 5] = z + 1;
+    }
+}
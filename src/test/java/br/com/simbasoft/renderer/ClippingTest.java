@@ -0,0 +1,102 @@
+package br.com.simbasoft.renderer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ClippingTest {
+    private static final double Z_NEAR = 1;
+    private static final double Z_FAR = 20;
+    private static final double EPSILON = 1e-9;
+    private static final int ALL_PLANES = (1 << EFrustumPlane.values().length) - 1;
+
+    // A 90 degree field of view makes the side planes |x| <= z and |y| <= z
+    private final Clipping clipping = new Clipping(Math.PI / 2, Math.PI / 2, Z_NEAR, Z_FAR);
+    private final Polygon polygon = new Polygon();
+
+    @Test
+    public void keepsTriangleInsideFrustum() {
+        assertEquals(3, clip(0, 0, 5, 1, 0, 5, 0, 1, 5));
+    }
+
+    @Test
+    public void removesTriangleOutsideOnePlane() {
+        // Straddles the top and bottom planes, but is entirely left of the frustum
+        assertEquals(0, clip(-10, -8, 5, -6, 0, 5, -12, 8, 5));
+    }
+
+    // Cutting off one corner turns the triangle into a quad
+    @Test
+    public void clipsCornerBehindNearPlane() {
+        assertEquals(4, clip(0, 0, 0.5, 1, 0, 5, -1, 0.5, 5));
+    }
+
+    // Each corner pokes out through a different side plane and is replaced by two vertices
+    @Test
+    public void clipsCornersThroughThreePlanes() {
+        assertEquals(6, clip(-10, -2.5, 5, 10, -2.5, 5, 0, 10, 5));
+    }
+
+    // Covering the whole cross-section of the frustum leaves only its square
+    @Test
+    public void clipsTriangleCoveringFrustumToSquare() {
+        assertEquals(4, clip(-20, -20, 5, 40, -20, 5, -20, 40, 5));
+    }
+
+    // A sliver through the whole depth range loses its tip to the near plane and its base to the far plane
+    @Test
+    public void clipsThroughNearAndFarPlanes() {
+        assertEquals(4, clip(0, 0, 0.5, -1, 0, 30, 1, 1, 30));
+    }
+
+    @Test
+    public void clipsCornersThroughNearAndSidePlanes() {
+        assertEquals(5, clip(0, 0, 0.5, 6, 0, 5, 0, 1, 5));
+    }
+
+    @Test
+    public void clipsInClipSpaceLikeCameraSpace() {
+        polygon.setTriangle(new Vector4(-2, -0.5, 0.5, 1), new Vector4(2, -0.5, 0.5, 1), new Vector4(0, 2, 0.5, 1), new double[6], 0);
+        clipping.clipPolygonInClipSpace(polygon, ALL_PLANES);
+
+        assertEquals(6, polygon.getVertexCount());
+    }
+
+    // Whatever planes a triangle crosses, what is left is empty or a polygon of at most nine vertices inside the frustum
+    @Test
+    public void leavesOnlyVerticesInsideFrustum() {
+        Random random = new Random(42);
+
+        for (int i = 0; i < 10000; i++) {
+            double[] corners = new double[9];
+
+            for (int axis = 0; axis < corners.length; axis++) {
+                corners[axis] = axis % 3 == 2 ? random.nextDouble() * 30 - 5 : random.nextDouble() * 60 - 30;
+            }
+
+            int vertexCount = clip(corners[0], corners[1], corners[2], corners[3], corners[4], corners[5], corners[6], corners[7], corners[8]);
+            double[] positions = polygon.getPositions();
+
+            assertTrue(vertexCount == 0 || (vertexCount >= 3 && vertexCount <= Polygon.MAX_VERTICES));
+
+            for (int vertex = 0; vertex < vertexCount; vertex++) {
+                double x = positions[vertex * 4];
+                double y = positions[vertex * 4 + 1];
+                double z = positions[vertex * 4 + 2];
+
+                assertTrue(Math.abs(x) <= z + EPSILON && Math.abs(y) <= z + EPSILON);
+                assertTrue(z >= Z_NEAR - EPSILON && z <= Z_FAR + EPSILON);
+            }
+        }
+    }
+
+    private int clip(double x0, double y0, double z0, double x1, double y1, double z1, double x2, double y2, double z2) {
+        polygon.setTriangle(new Vector4(x0, y0, z0, 1), new Vector4(x1, y1, z1, 1), new Vector4(x2, y2, z2, 1), new double[6], 0);
+        clipping.clipPolygon(polygon);
+
+        return polygon.getVertexCount();
+    }
+}
@@ -0,0 +1,81 @@
+package br.com.simbasoft.renderer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DisplayTest {
+    private static final int WIDTH = 48;
+    private static final int HEIGHT = 40;
+    private static final int COLOR = 0xFFFFFFFF;
+
+    private final HeadlessRenderTarget renderTarget = new HeadlessRenderTarget(WIDTH, HEIGHT);
+    private final Display display = new Display(renderTarget);
+
+    // With the top-left rule the two halves of a square cover exactly its width * height pixels between them
+    @Test
+    public void splitSquareHasNoGapsOrOverlap() {
+        int[] coverage = new int[WIDTH * HEIGHT];
+
+        addCoverage(coverage, 4, 3, 36, 3, 36, 30);
+        addCoverage(coverage, 4, 3, 36, 30, 4, 30);
+
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                boolean isInside = x >= 4 && x < 36 && y >= 3 && y < 30;
+
+                assertEquals(isInside ? 1 : 0, coverage[y * WIDTH + x], "pixel " + x + ", " + y);
+            }
+        }
+    }
+
+    // Two triangulations of the same convex polygon must cover the same pixels, each exactly once
+    @Test
+    public void triangulationsOfPolygonCoverSamePixels() {
+        int[] polygon = {20, 2, 41, 9, 45, 27, 27, 38, 6, 33, 2, 14};
+        int vertexCount = polygon.length / 2;
+
+        int[] fromCorner = new int[WIDTH * HEIGHT];
+
+        for (int i = 1; i < vertexCount - 1; i++) {
+            addCoverage(fromCorner, polygon[0], polygon[1], polygon[i * 2], polygon[i * 2 + 1], polygon[i * 2 + 2], polygon[i * 2 + 3]);
+        }
+
+        // Fanned around an inner point, and wound the other way, so the shared edges run in every direction
+        int[] fromCenter = new int[WIDTH * HEIGHT];
+
+        for (int i = 0; i < vertexCount; i++) {
+            int next = (i + 1) % vertexCount;
+
+            addCoverage(fromCenter, 23, 21, polygon[next * 2], polygon[next * 2 + 1], polygon[i * 2], polygon[i * 2 + 1]);
+        }
+
+        for (int count : fromCorner) {
+            assertTrue(count <= 1);
+        }
+
+        assertArrayEquals(fromCorner, fromCenter);
+    }
+
+    private void addCoverage(int[] coverage, int x0, int y0, int x1, int y1, int x2, int y2) {
+        TriangleBuffer triangles = new TriangleBuffer();
+        Polygon polygon = new Polygon();
+
+        polygon.setTriangle(new Vector4(x0, y0, 0, 1), new Vector4(x1, y1, 0, 1), new Vector4(x2, y2, 0, 1), new double[6], 0);
+        triangles.addFromPolygon(polygon, 0, 1, 2, COLOR, null);
+
+        display.clear();
+        display.drawFilledTriangle(triangles, 0);
+        display.renderColorBuffer();
+
+        int[] frame = renderTarget.getFrame();
+
+        for (int i = 0; i < frame.length; i++) {
+            if (frame[i] == COLOR) {
+                coverage[i]++;
+            }
+        }
+    }
+}
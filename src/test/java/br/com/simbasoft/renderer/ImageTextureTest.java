@@ -0,0 +1,54 @@
+package br.com.simbasoft.renderer;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class ImageTextureTest {
+    // Level 0 is the only one a texture sampled without mipmaps ever needs
+    @Test
+    public void buildsMipLevelsOnFirstUse() throws IOException {
+        ImageTexture texture = load(4, 4);
+
+        assertEquals(3, texture.getMipLevelCount());
+        assertSame(texture.getMeshTexture(), texture.getMipLevel(0));
+        assertEquals(16 * Integer.BYTES, texture.getSizeInBytes());
+
+        assertEquals(2, texture.getMipWidth(1));
+        assertEquals(4, texture.getMipLevel(1).length);
+        assertEquals((16 + 4 + 1) * Integer.BYTES, texture.getSizeInBytes());
+    }
+
+    @Test
+    public void averagesEachTexelBlock() throws IOException {
+        ImageTexture texture = load(2, 1);
+
+        assertArrayEquals(new int[] {0x80808080}, texture.getMipLevel(1));
+    }
+
+    private static ImageTexture load(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+
+        for (int x = 0; x < width; x += 2) {
+            image.setRGB(x, 0, 0xFFFFFFFF);
+        }
+
+        Path file = Files.createTempFile("imagetexture", ".png");
+
+        try {
+            ImageIO.write(image, "png", file.toFile());
+
+            return new ImageTexture(file.toString());
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
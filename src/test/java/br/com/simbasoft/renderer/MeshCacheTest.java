@@ -0,0 +1,79 @@
+package br.com.simbasoft.renderer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class MeshCacheTest {
+    private static final String QUAD = """
+            v 0 0 0
+            v 1 0 0
+            v 1 1 0
+            v 0 1 0
+            f 1 2 3 4
+            """;
+
+    @Test
+    public void readsBackWhatWasWritten() throws IOException {
+        Path directory = Files.createTempDirectory("meshcache");
+        Path source = writeSource(directory);
+
+        try {
+            MeshGeometry geometry = ObjParser.parse(source);
+
+            MeshCache.write(source, geometry);
+
+            MeshGeometry cached = MeshCache.read(source);
+
+            assertEquals(2, cached.getFaceCount());
+            assertArrayEquals(geometry.getIndices(), cached.getIndices());
+        } finally {
+            deleteAll(directory, source);
+        }
+    }
+
+    // Caches written before n-gons were fan-triangulated hold only the first triangle of the quad
+    @Test
+    public void rejectsCacheFromOlderVersion() throws IOException {
+        Path directory = Files.createTempDirectory("meshcache");
+        Path source = writeSource(directory);
+
+        try {
+            MeshCache.write(source, ObjParser.parse(source));
+
+            Path cachePath = MeshCache.getCachePath(source);
+            byte[] bytes = Files.readAllBytes(cachePath);
+
+            ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(4, 1);
+            Files.write(cachePath, bytes);
+
+            assertNull(MeshCache.read(source));
+        } finally {
+            deleteAll(directory, source);
+        }
+    }
+
+    private static Path writeSource(Path directory) throws IOException {
+        Path source = directory.resolve("quad.obj");
+
+        Files.writeString(source, QUAD);
+        Files.setLastModifiedTime(source, FileTime.fromMillis(1_000_000));
+
+        return source;
+    }
+
+    private static void deleteAll(Path directory, Path source) throws IOException {
+        Files.deleteIfExists(MeshCache.getCachePath(source));
+        Files.deleteIfExists(source);
+        Files.delete(directory);
+    }
+}
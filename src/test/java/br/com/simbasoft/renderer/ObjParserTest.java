@@ -0,0 +1,69 @@
+package br.com.simbasoft.renderer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ObjParserTest {
+    @Test
+    public void ignoresTrailingComments() throws IOException {
+        MeshGeometry geometry = parse("""
+                v 0 0 0 # origin
+                v 1 0 0
+                v 0 1.5 0#no space before the comment
+                vt 0.25 0.75 # uv
+                f 1/1 2/1 3/1 # quad half
+                """);
+
+        assertEquals(3, geometry.getVertexCount());
+        assertEquals(1, geometry.getFaceCount());
+        assertArrayEquals(new int[] {0, 1, 2}, geometry.getIndices());
+        assertEquals(1.5, geometry.getPositions()[7]);
+        assertEquals(0.75, geometry.getTextureCoordinates()[1]);
+    }
+
+    @Test
+    public void parsesNumbersLikeDoubleParseDouble() throws IOException {
+        MeshGeometry geometry = parse("""
+                v 1e2 -2.5E-1 +3
+                v 0.1 12345678901234567890 1e-30
+                v 1 1 1
+                f 1 2 3
+                """);
+
+        assertArrayEquals(new double[] {
+                Double.parseDouble("1e2"), Double.parseDouble("-2.5E-1"), Double.parseDouble("+3"),
+                Double.parseDouble("0.1"), Double.parseDouble("12345678901234567890"), Double.parseDouble("1e-30"),
+                1, 1, 1
+        }, geometry.getPositions());
+    }
+
+    // Double.parseDouble rejects a dangling exponent, so the parser reports it as a bad number
+    @Test
+    public void rejectsDanglingExponent() {
+        RuntimeException e = assertThrows(RuntimeException.class, () -> parse("""
+                v 1e 0 0
+                """));
+
+        assertTrue(e.getMessage().endsWith("expected a number"));
+    }
+
+    private static MeshGeometry parse(String obj) throws IOException {
+        Path file = Files.createTempFile("objparser", ".obj");
+
+        try {
+            Files.writeString(file, obj);
+
+            return ObjParser.parse(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
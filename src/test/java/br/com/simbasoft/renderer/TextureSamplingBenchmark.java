@@ -0,0 +1,89 @@
+package br.com.simbasoft.renderer;
+
+import java.io.IOException;
+
+// Samples a texture over a screen-sized square with the texture rotated by a range of angles, once per layout.
+// A pixel step moves one texel, so at 0 degrees pixels walk along texture rows and at 90 degrees down texture columns.
+// usage: TextureSamplingBenchmark [pngFile] [level]
+public class TextureSamplingBenchmark {
+    private static final int SCREEN_SIZE = 512;
+    private static final int WARMUP_PASSES = 10;
+    private static final int MEASURED_PASSES = 20;
+    private static final int[] ANGLES = {0, 30, 45, 60, 90};
+
+    private static int checksum;
+
+    public static void main(String[] args) throws IOException {
+        ImageTexture texture = new ImageTexture(args.length > 0 ? args[0] : "./src/main/resources/crab.png");
+        int level = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        int width = texture.getMipWidth(level);
+        int height = texture.getMipHeight(level);
+        int[] rowMajor = texture.getMipLevel(level);
+        int[] tiled = texture.getTiledMipLevel(level);
+
+        System.out.printf("%dx%d texels, %d samples per pass%n", width, height, SCREEN_SIZE * SCREEN_SIZE);
+
+        // Every angle and layout is compiled before any of them is timed
+        for (int pass = 0; pass < WARMUP_PASSES; pass++) {
+            for (int angle : ANGLES) {
+                checksum += samplePass(rowMajor, width, height, false, angle);
+                checksum += samplePass(tiled, width, height, true, angle);
+            }
+        }
+
+        for (int angle : ANGLES) {
+            double rowMajorNanos = measure(rowMajor, width, height, false, angle);
+            double tiledNanos = measure(tiled, width, height, true, angle);
+
+            System.out.printf("%3d degrees: row-major %.2f ns/sample, tiled %.2f ns/sample%n", angle, rowMajorNanos, tiledNanos);
+        }
+
+        // Keeps the sampled texels from being optimized away
+        System.out.printf("checksum %08x%n", checksum);
+    }
+
+    // The fastest of the measured passes, which is the least disturbed by other work on the machine
+    private static double measure(int[] texels, int width, int height, boolean isTiled, int angle) {
+        long fastestNanos = Long.MAX_VALUE;
+
+        for (int pass = 0; pass < MEASURED_PASSES; pass++) {
+            long start = System.nanoTime();
+
+            checksum += samplePass(texels, width, height, isTiled, angle);
+
+            fastestNanos = Math.min(fastestNanos, System.nanoTime() - start);
+        }
+
+        return (double) fastestNanos / (SCREEN_SIZE * SCREEN_SIZE);
+    }
+
+    // u and v are stepped per pixel like the rasterizer does, kept positive so both layouts read the same texels
+    private static int samplePass(int[] texels, int width, int height, boolean isTiled, int angle) {
+        double cos = Math.cos(Math.toRadians(angle));
+        double sin = Math.sin(Math.toRadians(angle));
+        double uStepX = cos / width;
+        double vStepX = sin / height;
+        double uStepY = -sin / width;
+        double vStepY = cos / height;
+        double rowU = SCREEN_SIZE * (sin + 1) / width;
+        double rowV = SCREEN_SIZE / (double) height;
+        int sum = 0;
+
+        for (int y = 0; y < SCREEN_SIZE; y++) {
+            double u = rowU;
+            double v = rowV;
+
+            for (int x = 0; x < SCREEN_SIZE; x++) {
+                sum += ImageTexture.sample(texels, width, height, isTiled, u, v);
+
+                u += uStepX;
+                v += vStepX;
+            }
+
+            rowU += uStepY;
+            rowV += vStepY;
+        }
+
+        return sum;
+    }
+}
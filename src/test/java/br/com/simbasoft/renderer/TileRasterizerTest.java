@@ -0,0 +1,63 @@
+package br.com.simbasoft.renderer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+public class TileRasterizerTest {
+    // Not a multiple of the tile size, so the last column and row of tiles are partial
+    private static final int WIDTH = 150;
+    private static final int HEIGHT = 130;
+
+    // Pixels on tile borders must be drawn once, by the tile that owns them, exactly as a single full-screen pass would
+    @Test
+    public void tilesMatchFullScreenRasterization() {
+        TriangleBuffer triangles = new TriangleBuffer();
+        Polygon polygon = new Polygon();
+
+        addTriangle(triangles, polygon, 10, 10, 140, 64, 30, 120, 2, 0xFFFF0000);
+        addTriangle(triangles, polygon, 64, 0, 128, 128, 0, 64, 3, 0xFF00FF00);
+        addTriangle(triangles, polygon, 149, 129, 64, 64, 128, 5, 1.5, 0xFF0000FF);
+        addTriangle(triangles, polygon, -20, 70, 100, 140, 70, 60, 2.5, 0xFFFFFF00);
+
+        HeadlessRenderTarget serialTarget = new HeadlessRenderTarget(WIDTH, HEIGHT);
+        Display serialDisplay = createDisplay(serialTarget);
+
+        serialDisplay.clear();
+
+        for (int i = 0; i < triangles.size(); i++) {
+            serialDisplay.drawFilledTriangle(triangles, i);
+        }
+
+        serialDisplay.renderColorBuffer();
+
+        HeadlessRenderTarget tiledTarget = new HeadlessRenderTarget(WIDTH, HEIGHT);
+        Display tiledDisplay = createDisplay(tiledTarget);
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        try {
+            tiledDisplay.clear();
+            new TileRasterizer(tiledDisplay, pool).render(triangles, null);
+            tiledDisplay.renderColorBuffer();
+        } finally {
+            pool.shutdown();
+        }
+
+        assertArrayEquals(serialTarget.getFrame(), tiledTarget.getFrame());
+    }
+
+    private static Display createDisplay(HeadlessRenderTarget renderTarget) {
+        Display display = new Display(renderTarget);
+
+        display.setRenderMethod(ERenderMethod.RENDER_FILL_TRIANGLE);
+
+        return display;
+    }
+
+    private static void addTriangle(TriangleBuffer triangles, Polygon polygon, int x0, int y0, int x1, int y1, int x2, int y2, double w, int color) {
+        polygon.setTriangle(new Vector4(x0, y0, 0, w), new Vector4(x1, y1, 0, w), new Vector4(x2, y2, 0, w), new double[6], 0);
+        triangles.addFromPolygon(polygon, 0, 1, 2, color, null);
+    }
+}
@@ -0,0 +1,73 @@
+package br.com.simbasoft.renderer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+public class TriangleSorterTest {
+    private final TriangleSorter sorter = new TriangleSorter();
+    private final TriangleBuffer triangles = new TriangleBuffer();
+    private final Polygon polygon = new Polygon();
+
+    // Each triangle is ordered by its nearest corner
+    @Test
+    public void sortsByNearestDepth() {
+        addTriangle(5, 9, 7);
+        addTriangle(3, 12, 18);
+        addTriangle(19, 4, 6);
+        addTriangle(1.5, 20, 20);
+
+        assertArrayEquals(new int[] {3, 1, 2, 0}, sort());
+    }
+
+    // The sort is stable, so triangles at the same depth keep their drawing order
+    @Test
+    public void keepsOrderOfEqualDepths() {
+        addTriangle(2, 8, 8);
+        addTriangle(1, 5, 5);
+        addTriangle(8, 2, 9);
+        addTriangle(5, 5, 1);
+        addTriangle(3, 3, 2);
+
+        assertArrayEquals(new int[] {1, 3, 0, 2, 4}, sort());
+    }
+
+    // Depths at or behind the eye are clamped to 0, so they sort first and stay in drawing order among themselves
+    @Test
+    public void sortsNegativeDepthsFirst() {
+        addTriangle(4, 4, 4);
+        addTriangle(-3, 6, 6);
+        addTriangle(0.5, 2, 2);
+        addTriangle(-0.25, 1, 1);
+        addTriangle(0, 3, 3);
+
+        assertArrayEquals(new int[] {1, 3, 4, 2, 0}, sort());
+    }
+
+    // The returned array is reused, and only its first size entries belong to the current buffer
+    @Test
+    public void sortsSmallerBufferAfterLargerOne() {
+        for (int i = 0; i < 300; i++) {
+            addTriangle(300 - i, 400, 400);
+        }
+
+        sort();
+
+        triangles.clear();
+        addTriangle(9, 9, 9);
+        addTriangle(6, 6, 6);
+
+        assertArrayEquals(new int[] {1, 0}, sort());
+    }
+
+    private void addTriangle(double w0, double w1, double w2) {
+        polygon.setTriangle(new Vector4(0, 0, 0, w0), new Vector4(1, 0, 0, w1), new Vector4(0, 1, 0, w2), new double[6], 0);
+        triangles.addFromPolygon(polygon, 0, 1, 2, 0, null);
+    }
+
+    private int[] sort() {
+        return Arrays.copyOf(sorter.sortFrontToBack(triangles), triangles.size());
+    }
+}